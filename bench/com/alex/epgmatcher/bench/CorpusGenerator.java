@@ -0,0 +1,505 @@
+package com.alex.epgmatcher.bench;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Deterministic generator of synthetic XMLTV EPG, M3U playlist matching it and ground truth of the playlist.
+ * The same seed and options give byte identical files.
+ * <p>
+ * EPG channels have Cyrillic or Latin names with one to three display names and HD, SD and +1 variants.
+ * Programmes of given total size may follow channels section.
+ * Playlist entries refer to random EPG channels by exact name, changed case and separators,
+ * added quality suffix, dropped or reordered words and tvg-id, noise entries refer to no channel.
+ * Ground truth file has kind of entry, expected EPG id (empty for noise) and channel name
+ * separated by tab, one line per playlist entry in the same order.
+ * <p>
+ * Usage: CorpusGenerator [-output:"directory"] [-seed:n] [-channels:n] [-playlist:n] [-renames:percent]
+ * [-noise:percent] [-tvgid:percent] [-programmes:"MB of programmes"] [-gzip:true|false]
+ */
+public final class CorpusGenerator {
+    /**
+     * Name of EPG file, {@link #GZIP_SUFFIX} is appended for compressed output.
+     */
+    public static final String EPG_FILENAME = "epg.xml";
+    /**
+     * Name of playlist file, {@link #GZIP_SUFFIX} is appended for compressed output.
+     */
+    public static final String PLAYLIST_FILENAME = "playlist.m3u";
+    /**
+     * Name of ground truth file.
+     */
+    public static final String TRUTH_FILENAME = "truth.tsv";
+    public static final String GZIP_SUFFIX = ".gz";
+    public static final String KIND_EXACT = "exact";
+    public static final String KIND_CASE = "case";
+    public static final String KIND_QUALITY = "quality";
+    public static final String KIND_RENAME = "rename";
+    public static final String KIND_TVG_ID = "tvg-id";
+    public static final String KIND_NOISE = "noise";
+
+    private static final String[] CYRILLIC_WORDS = {"ПЕРВЫЙ", "КАНАЛ", "РОССИЯ", "МУЗЫКА", "КИНО", "СПОРТ",
+            "НОВОСТИ", "ДЕТСКИЙ", "МИР", "ДОМ", "ЗВЕЗДА", "ПЯТНИЦА", "КУЛЬТУРА", "НАУКА", "ИСТОРИЯ", "ОХОТА",
+            "РЫБАЛКА", "ЮМОР", "СЕРИАЛ", "ДРАЙВ", "ЗДОРОВЬЕ", "КУХНЯ", "ТВ", "ПЛЮС", "ПРЕМЬЕРА", "ЖИВАЯ", "ПЛАНЕТА"};
+    private static final String[] LATIN_WORDS = {"SPORT", "NEWS", "MOVIE", "KIDS", "MUSIC", "WORLD", "LIFE",
+            "CINEMA", "SCIENCE", "TRAVEL", "FASHION", "CLASSIC", "ACTION", "COMEDY", "JAZZ", "ROCK", "TV", "ONE",
+            "PLUS", "GOLD", "PREMIUM", "EUROPE", "INTERNATIONAL", "ARENA", "DISCOVERY", "NATURE"};
+    private static final String[] CYRILLIC_SYLLABLES = {"КА", "РО", "МИ", "ЛА", "ТЕ", "ВО", "НИ", "СТ", "ЗА",
+            "ДО", "РУ", "БЕ", "ГО", "ЛЮ", "ЯР"};
+    private static final String[] LATIN_SYLLABLES = {"KA", "RO", "MI", "LA", "TE", "VO", "NI", "ST", "ZA",
+            "DO", "RU", "BE", "GO", "LU", "AX", "ON", "ER"};
+    private static final String[] QUALITY_SUFFIXES = {" FHD", " 50 fps", " orig", " (резерв)", " [backup]"};
+    private static final String[] GROUPS = {"Общие", "Новости", "Спорт", "Кино", "Детские", "Музыка", "Познавательные",
+            "Sport", "Movies", "Music"};
+    private static final String TRANSLIT_FROM = "АБВГДЕЁЖЗИЙКЛМНОПРСТУФХЦЧШЩЪЫЬЭЮЯ";
+    private static final String[] TRANSLIT_TO = {"A", "B", "V", "G", "D", "E", "E", "ZH", "Z", "I", "Y", "K", "L",
+            "M", "N", "O", "P", "R", "S", "T", "U", "F", "KH", "TS", "CH", "SH", "SCH", "", "Y", "", "E", "YU", "YA"};
+    private static final String NEW_LINE = "\r\n";
+    private static final String TAB = "\t";
+    private static final long MEGABYTE = 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private long seed = 1;
+    private int channelCount = 10000;
+    private int playlistSize = -1;
+    private int renamePercent = 30;
+    private int noisePercent = 10;
+    private int tvgIdPercent = 20;
+    private long programmeBytes;
+
+    private Random random;
+    private List<EPGChannel> channels;
+
+    public static void main(String[] args) throws IOException {
+        CorpusGenerator generator = new CorpusGenerator();
+        File output = new File("corpus");
+        boolean gzip = false;
+        for (String arg : args) {
+            int index = arg.indexOf(':');
+            if (index < 1) {
+                showHelp();
+                return;
+            }
+            String value = arg.substring(index + 1).replaceAll("\"", "");
+            switch (arg.substring(0, index).toLowerCase()) {
+                case "-output":
+                    output = new File(value);
+                    break;
+                case "-seed":
+                    generator.setSeed(Long.parseLong(value));
+                    break;
+                case "-channels":
+                    generator.setChannelCount(Integer.parseInt(value));
+                    break;
+                case "-playlist":
+                    generator.setPlaylistSize(Integer.parseInt(value));
+                    break;
+                case "-renames":
+                    generator.setRenamePercent(Integer.parseInt(value));
+                    break;
+                case "-noise":
+                    generator.setNoisePercent(Integer.parseInt(value));
+                    break;
+                case "-tvgid":
+                    generator.setTvgIdPercent(Integer.parseInt(value));
+                    break;
+                case "-programmes":
+                    generator.setProgrammeBytes(Long.parseLong(value) * MEGABYTE);
+                    break;
+                case "-gzip":
+                    gzip = Boolean.parseBoolean(value);
+                    break;
+                default:
+                    showHelp();
+                    return;
+            }
+        }
+        long time = System.nanoTime();
+        generator.generate(output, gzip);
+        System.out.println(String.format("Corpus of %d channels and %d playlist entries generated in %s in %d ms",
+                generator.getChannelCount(), generator.getPlaylistSize(), output.getAbsolutePath(),
+                (System.nanoTime() - time) / 1_000_000));
+    }
+
+    private static void showHelp() {
+        System.out.println("Usage: CorpusGenerator [-output:\"directory\"] [-seed:n] [-channels:n] [-playlist:n] " +
+                "[-renames:percent] [-noise:percent] [-tvgid:percent] [-programmes:\"MB of programmes\"] " +
+                "[-gzip:true|false]");
+    }
+
+    /**
+     * Write EPG, playlist and ground truth files to given directory.
+     *
+     * @param directory directory for files, it is created if it doesn't exist
+     * @param gzip      compress EPG and playlist by gzip
+     * @throws IOException if an I/O error has occurred
+     */
+    public void generate(File directory, boolean gzip) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create directory " + directory);
+        }
+        String suffix = gzip ? GZIP_SUFFIX : "";
+        random = new Random(seed);
+        channels = createChannels();
+        try (CountingOutputStream os = new CountingOutputStream(open(new File(directory, EPG_FILENAME + suffix), gzip));
+             Writer writer = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            writeEpg(writer, os);
+        }
+        try (Writer m3u = new BufferedWriter(new OutputStreamWriter(
+                open(new File(directory, PLAYLIST_FILENAME + suffix), gzip), StandardCharsets.UTF_8), BUFFER_SIZE);
+             Writer truth = new BufferedWriter(new OutputStreamWriter(
+                     new FileOutputStream(new File(directory, TRUTH_FILENAME)), StandardCharsets.UTF_8))) {
+            writePlaylist(m3u, truth);
+        }
+    }
+
+    private static OutputStream open(File file, boolean gzip) throws IOException {
+        OutputStream os = new FileOutputStream(file);
+        return gzip ? new GZIPOutputStream(os, BUFFER_SIZE) : new BufferedOutputStream(os, BUFFER_SIZE);
+    }
+
+    private List<EPGChannel> createChannels() {
+        List<EPGChannel> result = new ArrayList<>(channelCount);
+        Set<String> keys = new HashSet<>();
+        Set<String> ids = new HashSet<>();
+        while (result.size() < channelCount) {
+            boolean cyrillic = random.nextBoolean();
+            String name = createName(cyrillic);
+            if (!keys.add(getKey(name))) continue;
+            EPGChannel base = new EPGChannel(createId(name, ids), name, cyrillic);
+            result.add(base);
+            int variant = random.nextInt(100);
+            if (variant < 25) {
+                addVariant(result, keys, ids, base, " HD");
+            }
+            if (variant >= 15 && variant < 25) {
+                addVariant(result, keys, ids, base, " +1");
+            }
+            if (variant >= 90) {
+                addVariant(result, keys, ids, base, " SD");
+            }
+        }
+        return new ArrayList<>(result.subList(0, channelCount));
+    }
+
+    private void addVariant(List<EPGChannel> result, Set<String> keys, Set<String> ids, EPGChannel base,
+                            String suffix) {
+        String name = base.name + suffix;
+        if (!keys.add(getKey(name))) return;
+        EPGChannel variant = new EPGChannel(createId(name, ids), name, base.cyrillic);
+        result.add(variant);
+    }
+
+    private String createName(boolean cyrillic) {
+        String[] syllables = cyrillic ? CYRILLIC_SYLLABLES : LATIN_SYLLABLES;
+        String[] words = cyrillic ? CYRILLIC_WORDS : LATIN_WORDS;
+        StringBuilder name = new StringBuilder();
+        // brand word
+        int count = 2 + random.nextInt(3);
+        for (int i = 0; i < count; i++) {
+            name.append(syllables[random.nextInt(syllables.length)]);
+        }
+        int wordCount = random.nextInt(3);
+        for (int i = 0; i < wordCount; i++) {
+            name.append(' ').append(words[random.nextInt(words.length)]);
+        }
+        if (random.nextInt(10) == 0) {
+            name.append(' ').append(1 + random.nextInt(24));
+        }
+        return toTitleCase(name.toString());
+    }
+
+    private static String createId(String name, Set<String> ids) {
+        String base = translit(name).toLowerCase().replaceAll("[^a-z0-9]+", "-").replaceAll("^-|-$", "");
+        String id = base + ".tv";
+        for (int i = 2; !ids.add(id); i++) {
+            id = base + "-" + i + ".tv";
+        }
+        return id;
+    }
+
+    private void writeEpg(Writer writer, CountingOutputStream os) throws IOException {
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        writer.write("<!DOCTYPE tv SYSTEM \"xmltv.dtd\">\n");
+        writer.write("<tv generator-info-name=\"EPGMatcher corpus generator\">\n");
+        for (EPGChannel channel : channels) {
+            writer.write("  <channel id=\"" + escape(channel.id) + "\">\n");
+            for (int i = 0; i < channel.displayNames.length; i++) {
+                writer.write("    <display-name lang=\"" + channel.langs[i] + "\">" + escape(channel.displayNames[i])
+                        + "</display-name>\n");
+            }
+            writer.write("  </channel>\n");
+        }
+        long start = 1483228800000L;
+        // programmes are written until uncompressed size is reached, channels are taken in turn
+        for (long index = 0; programmeBytes > 0 && os.getCount() < programmeBytes; index++) {
+            EPGChannel channel = channels.get((int) (index % channels.size()));
+            long time = start + (index / channels.size()) * 30 * 60 * 1000;
+            writer.write("  <programme start=\"" + formatTime(time) + "\" stop=\""
+                    + formatTime(time + 30 * 60 * 1000) + "\" channel=\"" + escape(channel.id) + "\">\n");
+            writer.write("    <title lang=\"" + channel.langs[0] + "\">" + escape(createTitle(channel.cyrillic))
+                    + "</title>\n");
+            writer.write("    <desc lang=\"" + channel.langs[0] + "\">" + escape(createDescription(channel.cyrillic))
+                    + "</desc>\n");
+            writer.write("  </programme>\n");
+            if (index % 64 == 0) {
+                // update counter by flushed bytes
+                writer.flush();
+            }
+        }
+        writer.write("</tv>\n");
+    }
+
+    private String createTitle(boolean cyrillic) {
+        String[] words = cyrillic ? CYRILLIC_WORDS : LATIN_WORDS;
+        return toTitleCase(words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)]);
+    }
+
+    private String createDescription(boolean cyrillic) {
+        String[] words = cyrillic ? CYRILLIC_WORDS : LATIN_WORDS;
+        StringBuilder description = new StringBuilder();
+        int count = 10 + random.nextInt(30);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) description.append(' ');
+            description.append(words[random.nextInt(words.length)].toLowerCase());
+        }
+        return description.append('.').toString();
+    }
+
+    private void writePlaylist(Writer m3u, Writer truth) throws IOException {
+        m3u.write("#EXTM3U" + NEW_LINE);
+        int size = getPlaylistSize();
+        for (int i = 0; i < size; i++) {
+            EPGChannel channel = channels.get(random.nextInt(channels.size()));
+            String name;
+            String kind;
+            String tvgId = null;
+            int value = random.nextInt(100);
+            if (value < noisePercent) {
+                kind = KIND_NOISE;
+                channel = null;
+                name = "Zz " + createName(random.nextBoolean()) + " " + (i % 1000);
+            } else if ((value -= noisePercent) < tvgIdPercent) {
+                kind = KIND_TVG_ID;
+                tvgId = channel.id;
+                name = createRename(channel);
+            } else if ((value -= tvgIdPercent) < renamePercent) {
+                switch (random.nextInt(3)) {
+                    case 0:
+                        kind = KIND_CASE;
+                        name = changeCase(channel.name);
+                        break;
+                    case 1:
+                        kind = KIND_QUALITY;
+                        name = channel.name + QUALITY_SUFFIXES[random.nextInt(QUALITY_SUFFIXES.length)];
+                        break;
+                    default:
+                        kind = KIND_RENAME;
+                        name = createRename(channel);
+                }
+            } else {
+                kind = KIND_EXACT;
+                name = channel.name;
+            }
+            m3u.write("#EXTINF:-1");
+            if (tvgId != null) {
+                m3u.write(" tvg-id=\"" + tvgId + "\"");
+            }
+            m3u.write(" group-title=\"" + GROUPS[random.nextInt(GROUPS.length)] + "\"," + name + NEW_LINE);
+            m3u.write("http://example.com/live/" + i + ".ts" + NEW_LINE);
+            truth.write(kind + TAB + (channel != null ? channel.id : "") + TAB + name + "\n");
+        }
+    }
+
+    /**
+     * Drop the last word of name with several words or swap two first words.
+     */
+    private String createRename(EPGChannel channel) {
+        String[] words = channel.name.split(" ");
+        if (words.length < 2) {
+            return changeCase(channel.name);
+        }
+        if (words.length > 2 && random.nextBoolean()) {
+            return String.join(" ", Arrays.copyOf(words, words.length - 1));
+        }
+        String first = words[0];
+        words[0] = words[1];
+        words[1] = first;
+        return String.join(" ", words);
+    }
+
+    private String changeCase(String name) {
+        String result = random.nextBoolean() ? name.toUpperCase() : name.toLowerCase();
+        return random.nextBoolean() ? result.replace(' ', '-') : result.replace(" ", "");
+    }
+
+    private static String getKey(String name) {
+        return name.toUpperCase().replaceAll("[^А-ЯЁA-Z0-9]+", "");
+    }
+
+    private static String translit(String name) {
+        StringBuilder result = new StringBuilder();
+        for (char c : name.toCharArray()) {
+            int index = TRANSLIT_FROM.indexOf(Character.toUpperCase(c));
+            if (index < 0) {
+                result.append(c);
+            } else {
+                String latin = TRANSLIT_TO[index];
+                result.append(Character.isLowerCase(c) ? latin.toLowerCase() : latin);
+            }
+        }
+        return result.toString();
+    }
+
+    private static String toTitleCase(String name) {
+        StringBuilder result = new StringBuilder(name.length());
+        boolean wordStart = true;
+        for (char c : name.toCharArray()) {
+            result.append(wordStart ? c : Character.toLowerCase(c));
+            wordStart = c == ' ';
+        }
+        return result.toString();
+    }
+
+    private static String formatTime(long millis) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"), Locale.ROOT);
+        calendar.setTimeInMillis(millis);
+        return String.format(Locale.ROOT, "%1$tY%1$tm%1$td%1$tH%1$tM%1$tS +0000", calendar);
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getChannelCount() {
+        return channelCount;
+    }
+
+    public void setChannelCount(int channelCount) {
+        this.channelCount = channelCount;
+    }
+
+    /**
+     * @return count of playlist entries, count of EPG channels by default
+     */
+    public int getPlaylistSize() {
+        return playlistSize >= 0 ? playlistSize : channelCount;
+    }
+
+    public void setPlaylistSize(int playlistSize) {
+        this.playlistSize = playlistSize;
+    }
+
+    public int getRenamePercent() {
+        return renamePercent;
+    }
+
+    /**
+     * @param renamePercent percent of playlist entries with changed case, quality suffix, dropped or swapped words
+     */
+    public void setRenamePercent(int renamePercent) {
+        this.renamePercent = renamePercent;
+    }
+
+    public int getNoisePercent() {
+        return noisePercent;
+    }
+
+    /**
+     * @param noisePercent percent of playlist entries without EPG
+     */
+    public void setNoisePercent(int noisePercent) {
+        this.noisePercent = noisePercent;
+    }
+
+    public int getTvgIdPercent() {
+        return tvgIdPercent;
+    }
+
+    /**
+     * @param tvgIdPercent percent of playlist entries with renamed name and tvg-id equal to EPG id
+     */
+    public void setTvgIdPercent(int tvgIdPercent) {
+        this.tvgIdPercent = tvgIdPercent;
+    }
+
+    public long getProgrammeBytes() {
+        return programmeBytes;
+    }
+
+    /**
+     * @param programmeBytes uncompressed size of EPG after which programmes aren't written, 0 for no programmes
+     */
+    public void setProgrammeBytes(long programmeBytes) {
+        this.programmeBytes = programmeBytes;
+    }
+
+    /**
+     * EPG channel with display names, the first name is used in playlist.
+     */
+    private final class EPGChannel {
+        private final String id;
+        private final String name;
+        private final boolean cyrillic;
+        private final String[] displayNames;
+        private final String[] langs;
+
+        private EPGChannel(String id, String name, boolean cyrillic) {
+            this.id = id;
+            this.name = name;
+            this.cyrillic = cyrillic;
+            List<String> names = new ArrayList<>();
+            List<String> nameLangs = new ArrayList<>();
+            names.add(name);
+            nameLangs.add(cyrillic ? "ru" : "en");
+            if (cyrillic && random.nextInt(100) < 40) {
+                names.add(translit(name));
+                nameLangs.add("en");
+            }
+            String shortName = name.split(" ")[0];
+            if (random.nextInt(100) < 20 && !shortName.equals(name)) {
+                names.add(shortName);
+                nameLangs.add(nameLangs.get(0));
+            }
+            displayNames = names.toArray(new String[0]);
+            langs = nameLangs.toArray(new String[0]);
+        }
+    }
+
+    /**
+     * Stream counting written bytes.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        private long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.alex.epgmatcher.bench;
+
+import com.alex.epgmatcher.beans.Channel;
+import com.alex.epgmatcher.util.DataHandler;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Compares {@link com.alex.epgmatcher.util.M3UParser} with {@link java.util.Scanner} based parsing
+ * on generated playlist.
+ * Usage: M3UParserBenchmark [count of entries]
+ */
+public final class M3UParserBenchmark {
+    private static final int DEFAULT_ENTRIES = 1_000_000;
+    private static final int ITERATIONS = 3;
+
+    private M3UParserBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ENTRIES;
+        File file = File.createTempFile("playlist", ".m3u");
+        file.deleteOnExit();
+        generate(file, entries);
+        System.out.println("Playlist: " + entries + " entries, " + file.length() + " bytes");
+        for (int i = 0; i < ITERATIONS; i++) {
+            long time = System.nanoTime();
+            List<Channel> channels;
+            try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+                    StandardCharsets.UTF_8))) {
+                channels = DataHandler.getChannels(reader);
+            }
+            report("Scanner", channels.size(), time);
+            channels = null;
+
+            time = System.nanoTime();
+            channels = DataHandler.getChannels(new BufferedInputStream(new FileInputStream(file)));
+            report("M3UParser", channels.size(), time);
+        }
+    }
+
+    private static void report(String name, int count, long startTime) {
+        long millis = (System.nanoTime() - startTime) / 1_000_000;
+        System.out.println(String.format("%-10s %d channels in %d ms (%d channels/s)", name, count, millis,
+                count * 1000L / Math.max(millis, 1)));
+    }
+
+    private static void generate(File file, int entries) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file),
+                StandardCharsets.UTF_8))) {
+            writer.write("#EXTM3U\r\n");
+            for (int i = 0; i < entries; i++) {
+                writer.write("#EXTINF:-1 tvg-id=\"ch" + i + "\" group-title=\"Группа " + (i % 50) + "\",Канал "
+                        + i + (i % 3 == 0 ? " HD" : "") + (i % 2 == 0 ? "\r\n" : "\n"));
+                writer.write("http://example.com/live/" + i + ".ts\r\n");
+            }
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.alex.epgmatcher.bench;
+
+import com.alex.epgmatcher.Matcher;
+import com.alex.epgmatcher.beans.Channel;
+import com.alex.epgmatcher.beans.EPG;
+import com.alex.epgmatcher.util.DataHandler;
+import com.alex.epgmatcher.util.EPGFinder;
+import org.xml.sax.SAXException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Match quality and throughput gate on golden corpus created by {@link CorpusGenerator}.
+ * Channels of corpus playlist are matched by {@link Matcher#matchEpg(List, EPGFinder, int)} and the first found EPG,
+ * which is written to playlist, is compared with ground truth. Precision, recall, counts of equality types
+ * and matched channels per second are compared with baseline file of corpus, gate fails with exit code 1
+ * if precision or recall is lower than in baseline. Throughput depends on host, so it's checked only
+ * with -throughput:true, then gate also fails if throughput is lower than in baseline by more than tolerance.
+ * <p>
+ * Usage: RegressionGate -corpus:"directory" [-throughput:true] [-tolerance:percent] [-iterations:n] [-threads:n]
+ * [-update:true]
+ * <br>-update:true writes current results to baseline file instead of checking.
+ */
+public final class RegressionGate {
+    /**
+     * Name of baseline file in corpus directory.
+     */
+    public static final String BASELINE_FILENAME = "baseline.properties";
+    private static final String PRECISION = "precision";
+    private static final String RECALL = "recall";
+    private static final String FULL = "full";
+    private static final String PARTIAL = "partial";
+    private static final String NONE = "none";
+    private static final String CHANNELS_PER_SECOND = "channelsPerSecond";
+    private static final int DEFAULT_TOLERANCE = 30;
+    private static final int DEFAULT_ITERATIONS = 5;
+    private static final double ACCURACY_EPSILON = 1e-9;
+    private static final double NANOS_IN_SECOND = 1e9;
+    private static final String TAB = "\t";
+
+    private RegressionGate() {
+    }
+
+    public static void main(String[] args) throws IOException, SAXException {
+        File corpus = null;
+        int tolerance = DEFAULT_TOLERANCE;
+        int iterations = DEFAULT_ITERATIONS;
+        int threads = 1;
+        boolean update = false;
+        boolean throughput = false;
+        for (String arg : args) {
+            int index = arg.indexOf(':');
+            if (index < 1) {
+                showHelp();
+                return;
+            }
+            String value = arg.substring(index + 1).replaceAll("\"", "");
+            switch (arg.substring(0, index).toLowerCase()) {
+                case "-corpus":
+                    corpus = new File(value);
+                    break;
+                case "-tolerance":
+                    tolerance = Integer.parseInt(value);
+                    break;
+                case "-iterations":
+                    iterations = Math.max(Integer.parseInt(value), 1);
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "-update":
+                    update = Boolean.parseBoolean(value);
+                    break;
+                case "-throughput":
+                    throughput = Boolean.parseBoolean(value);
+                    break;
+                default:
+                    showHelp();
+                    return;
+            }
+        }
+        if (corpus == null) {
+            showHelp();
+            return;
+        }
+        Result result = run(corpus, iterations, threads);
+        System.out.println(result);
+        File baselineFile = new File(corpus, BASELINE_FILENAME);
+        if (update) {
+            result.save(baselineFile);
+            System.out.println("Baseline updated: " + baselineFile);
+            return;
+        }
+        List<String> failures = check(result, Result.load(baselineFile), throughput, tolerance);
+        if (!failures.isEmpty()) {
+            for (String failure : failures) {
+                System.out.println("FAILED: " + failure);
+            }
+            System.exit(1);
+        }
+        System.out.println("Regression gate passed.");
+    }
+
+    private static void showHelp() {
+        System.out.println("Usage: RegressionGate -corpus:\"directory\" [-throughput:true] [-tolerance:percent] " +
+                "[-iterations:n] [-threads:n] [-update:true]");
+    }
+
+    /**
+     * Match corpus playlist several times and evaluate results of the last run by ground truth.
+     *
+     * @param corpus     directory of corpus
+     * @param iterations count of matching runs, the fastest run gives throughput
+     * @param threads    count of matching threads
+     * @return evaluated results
+     * @throws IOException  if an I/O error has occurred
+     * @throws SAXException if EPG can't be parsed
+     */
+    public static Result run(File corpus, int iterations, int threads) throws IOException, SAXException {
+        List<EPG> epgs;
+        try (Reader reader = new InputStreamReader(new FileInputStream(
+                new File(corpus, CorpusGenerator.EPG_FILENAME)), StandardCharsets.UTF_8)) {
+            epgs = DataHandler.getEPG(reader);
+        }
+        byte[] playlist = readAll(new File(corpus, CorpusGenerator.PLAYLIST_FILENAME));
+        List<String[]> truth = readTruth(new File(corpus, CorpusGenerator.TRUTH_FILENAME));
+        // previous mapping isn't used, so results depend only on corpus
+        EPGFinder finder = Matcher.createFinder(epgs, new HashMap<>());
+        long bestNanos = Long.MAX_VALUE;
+        List<Channel> channels = null;
+        for (int i = 0; i < iterations; i++) {
+            channels = DataHandler.getChannels(new ByteArrayInputStream(playlist));
+            long start = System.nanoTime();
+            Matcher.matchEpg(channels, finder, threads);
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+        if (channels.size() != truth.size()) {
+            throw new IOException("Playlist has " + channels.size() + " channels, ground truth has " + truth.size());
+        }
+        Result result = new Result();
+        result.channelsPerSecond = channels.size() * NANOS_IN_SECOND / Math.max(bestNanos, 1);
+        int truePositives = 0;
+        int falsePositives = 0;
+        int falseNegatives = 0;
+        Map<String, int[]> kinds = new TreeMap<>();
+        for (int i = 0; i < channels.size(); i++) {
+            Channel channel = channels.get(i);
+            String[] expected = truth.get(i);
+            switch (channel.getEqualityType()) {
+                case FULL:
+                case MANUAL:
+                    result.full++;
+                    break;
+                case PARTIAL:
+                    result.partial++;
+                    break;
+                default:
+                    result.none++;
+            }
+            // the first found EPG is written to playlist as tvg-name
+            String found = channel.getFindResults().isEmpty() ? null
+                    : channel.getFindResults().first().getEpg().getId();
+            String expectedId = expected[1];
+            boolean correct = found != null ? found.equals(expectedId) : expectedId.isEmpty();
+            if (found != null && correct) {
+                truePositives++;
+            } else if (found != null) {
+                falsePositives++;
+            }
+            if (!expectedId.isEmpty() && !correct) {
+                falseNegatives++;
+            }
+            int[] kind = kinds.computeIfAbsent(expected[0], key -> new int[2]);
+            kind[0]++;
+            if (correct) kind[1]++;
+        }
+        result.precision = truePositives + falsePositives > 0
+                ? (double) truePositives / (truePositives + falsePositives) : 1.0;
+        result.recall = truePositives + falseNegatives > 0
+                ? (double) truePositives / (truePositives + falseNegatives) : 1.0;
+        result.kinds = kinds;
+        return result;
+    }
+
+    /**
+     * @param throughput check throughput, which depends on host
+     * @param tolerance  allowed decrease of throughput in percents
+     * @return descriptions of failed checks, empty list if result isn't worse than baseline
+     */
+    private static List<String> check(Result result, Result baseline, boolean throughput, int tolerance) {
+        List<String> failures = new ArrayList<>();
+        if (result.precision + ACCURACY_EPSILON < baseline.precision) {
+            failures.add(String.format(Locale.ROOT, "precision %.4f is lower than baseline %.4f",
+                    result.precision, baseline.precision));
+        }
+        if (result.recall + ACCURACY_EPSILON < baseline.recall) {
+            failures.add(String.format(Locale.ROOT, "recall %.4f is lower than baseline %.4f",
+                    result.recall, baseline.recall));
+        }
+        double minThroughput = baseline.channelsPerSecond * (100 - tolerance) / 100;
+        if (throughput && result.channelsPerSecond < minThroughput) {
+            failures.add(String.format(Locale.ROOT, "throughput %.0f channels/s is lower than %.0f " +
+                            "(baseline %.0f - %d%%)", result.channelsPerSecond, minThroughput,
+                    baseline.channelsPerSecond, tolerance));
+        }
+        if (result.full != baseline.full || result.partial != baseline.partial || result.none != baseline.none) {
+            System.out.println(String.format("Equality types changed: FULL %+d, PARTIAL %+d, NONE %+d",
+                    result.full - baseline.full, result.partial - baseline.partial, result.none - baseline.none));
+        }
+        return failures;
+    }
+
+    private static byte[] readAll(File file) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream is = new FileInputStream(file)) {
+            byte[] buffer = new byte[64 * 1024];
+            int count;
+            while ((count = is.read(buffer)) >= 0) {
+                output.write(buffer, 0, count);
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private static List<String[]> readTruth(File file) throws IOException {
+        List<String[]> truth = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    truth.add(line.split(TAB, -1));
+                }
+            }
+        }
+        return truth;
+    }
+
+    /**
+     * Evaluated results of matching of corpus.
+     */
+    public static final class Result {
+        private double precision;
+        private double recall;
+        private int full;
+        private int partial;
+        private int none;
+        private double channelsPerSecond;
+        /**
+         * Count of entries and count of correctly matched entries by kind of ground truth.
+         */
+        private Map<String, int[]> kinds = new TreeMap<>();
+
+        public double getPrecision() {
+            return precision;
+        }
+
+        public double getRecall() {
+            return recall;
+        }
+
+        public double getChannelsPerSecond() {
+            return channelsPerSecond;
+        }
+
+        private void save(File file) throws IOException {
+            Properties properties = new Properties();
+            properties.setProperty(PRECISION, String.valueOf(precision));
+            properties.setProperty(RECALL, String.valueOf(recall));
+            properties.setProperty(FULL, String.valueOf(full));
+            properties.setProperty(PARTIAL, String.valueOf(partial));
+            properties.setProperty(NONE, String.valueOf(none));
+            properties.setProperty(CHANNELS_PER_SECOND, String.valueOf(Math.round(channelsPerSecond)));
+            try (OutputStream os = new FileOutputStream(file)) {
+                properties.store(os, "Regression gate baseline");
+            }
+        }
+
+        private static Result load(File file) throws IOException {
+            Properties properties = new Properties();
+            try (InputStream is = new FileInputStream(file)) {
+                properties.load(is);
+            }
+            Result result = new Result();
+            result.precision = Double.parseDouble(properties.getProperty(PRECISION));
+            result.recall = Double.parseDouble(properties.getProperty(RECALL));
+            result.full = Integer.parseInt(properties.getProperty(FULL));
+            result.partial = Integer.parseInt(properties.getProperty(PARTIAL));
+            result.none = Integer.parseInt(properties.getProperty(NONE));
+            result.channelsPerSecond = Double.parseDouble(properties.getProperty(CHANNELS_PER_SECOND));
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(String.format(Locale.ROOT,
+                    "Precision: %.4f, recall: %.4f, FULL: %d, PARTIAL: %d, NONE: %d, %.0f channels/s",
+                    precision, recall, full, partial, none, channelsPerSecond));
+            for (Map.Entry<String, int[]> kind : kinds.entrySet()) {
+                text.append(String.format(Locale.ROOT, "%n  %-8s %5d of %5d correct", kind.getKey(),
+                        kind.getValue()[1], kind.getValue()[0]));
+            }
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.alex.epgmatcher.jmh;
+
+import com.alex.epgmatcher.beans.Channel;
+import com.alex.epgmatcher.beans.EPG;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic data of benchmarks: EPG catalog with names built from random syllables
+ * and channel names hitting exact, mapped and fuzzy paths of EPG search.
+ */
+final class BenchmarkData {
+    private static final long SEED = 42;
+    private static final String[] SYLLABLES = {"KA", "NA", "TE", "LE", "RU", "SPO", "RT", "NEWS", "MU", "ZY",
+            "КА", "НА", "ТЕ", "ЛЕ", "РО", "СИ", "Я", "МИ", "РЪ", "ДО", "КИ", "НО"};
+    private static final String[] SUFFIXES = {" HD", " +2", " International", " (резерв)", " Europe"};
+
+    private final List<EPG> epgs = new ArrayList<>();
+    private final String[] exactNames;
+    private final String[] mappedNames;
+    private final String[] fuzzyNames;
+    private final Map<String, String> mapping = new HashMap<>();
+
+    /**
+     * @param size count of EPGs in catalog
+     */
+    BenchmarkData(int size) {
+        Random random = new Random(SEED);
+        for (int i = 0; i < size; i++) {
+            EPG epg = new EPG();
+            epg.setId("epg" + i);
+            epg.setName(createName(random));
+            epgs.add(epg);
+        }
+        int count = Math.min(size, 1000);
+        exactNames = new String[count];
+        mappedNames = new String[count];
+        fuzzyNames = new String[count];
+        for (int i = 0; i < count; i++) {
+            String name = epgs.get(random.nextInt(size)).getName();
+            exactNames[i] = name.toLowerCase().replace(' ', '-');
+            mappedNames[i] = "Mapped channel " + i;
+            mapping.put(mappedNames[i], name);
+            String[] words = name.split(" ");
+            // drop the last word if there are several and add suffix, so the name is never found exactly
+            StringBuilder fuzzy = new StringBuilder();
+            for (int j = 0; j < Math.max(words.length - 1, 1); j++) {
+                fuzzy.append(words[j]).append(' ');
+            }
+            fuzzyNames[i] = fuzzy.append(SUFFIXES[random.nextInt(SUFFIXES.length)]).toString().trim();
+        }
+    }
+
+    private static String createName(Random random) {
+        StringBuilder name = new StringBuilder();
+        int words = 1 + random.nextInt(3);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) name.append(' ');
+            int syllables = 1 + random.nextInt(3);
+            for (int j = 0; j < syllables; j++) {
+                name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+        }
+        if (random.nextInt(4) == 0) {
+            name.append(' ').append(1 + random.nextInt(20));
+        }
+        return name.toString();
+    }
+
+    List<EPG> getEpgs() {
+        return epgs;
+    }
+
+    Map<String, String> getMapping() {
+        return mapping;
+    }
+
+    String[] getExactNames() {
+        return exactNames;
+    }
+
+    String[] getMappedNames() {
+        return mappedNames;
+    }
+
+    String[] getFuzzyNames() {
+        return fuzzyNames;
+    }
+
+    /**
+     * @return XMLTV document with channels of catalog followed by one programme
+     */
+    byte[] getXml() {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<tv>\n");
+        for (EPG epg : epgs) {
+            xml.append("<channel id=\"").append(epg.getId()).append("\"><display-name lang=\"ru\">")
+                    .append(epg.getName()).append("</display-name></channel>\n");
+        }
+        xml.append("<programme start=\"20170101000000 +0000\" channel=\"epg0\"><title>News</title></programme>\n");
+        return xml.append("</tv>\n").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param size count of channels
+     * @return playlist with fuzzy names of catalog channels
+     */
+    byte[] getM3U(int size) {
+        StringBuilder m3u = new StringBuilder("#EXTM3U\r\n");
+        for (int i = 0; i < size; i++) {
+            m3u.append("#EXTINF:-1 tvg-id=\"ch").append(i).append("\" group-title=\"Group ").append(i % 50)
+                    .append("\",").append(fuzzyNames[i % fuzzyNames.length]).append("\r\n")
+                    .append("http://example.com/live/").append(i).append(".ts\r\n");
+        }
+        return m3u.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param size count of channels
+     * @return channels with names of playlist from {@link #getM3U(int)}
+     */
+    List<Channel> getChannels(int size) {
+        List<Channel> channels = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Channel channel = new Channel();
+            channel.setId("-1 tvg-id=\"ch" + i + "\"");
+            channel.setName(fuzzyNames[i % fuzzyNames.length]);
+            channel.setUrl("http://example.com/live/" + i + ".ts");
+            channels.add(channel);
+        }
+        return channels;
+    }
+}
@@ -0,0 +1,40 @@
+package com.alex.epgmatcher.jmh;
+
+import com.alex.epgmatcher.beans.EPG;
+import com.alex.epgmatcher.util.DataHandler;
+import org.openjdk.jmh.annotations.*;
+import org.xml.sax.SAXException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of parsing of EPG channels by {@link DataHandler#getEPG(java.io.Reader)} from memory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EPGParserBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    public int catalogSize;
+
+    private byte[] xml;
+
+    @Setup
+    public void setUp() {
+        xml = new BenchmarkData(catalogSize).getXml();
+    }
+
+    @Benchmark
+    public List<EPG> getEPG() throws IOException, SAXException {
+        return DataHandler.getEPG(new InputStreamReader(new ByteArrayInputStream(xml), StandardCharsets.UTF_8));
+    }
+}
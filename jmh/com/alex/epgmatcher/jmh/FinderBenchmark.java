@@ -0,0 +1,61 @@
+package com.alex.epgmatcher.jmh;
+
+import com.alex.epgmatcher.Matcher;
+import com.alex.epgmatcher.beans.FindResult;
+import com.alex.epgmatcher.util.EPGFinder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SortedSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link EPGFinder#findEPG(String, String)} by exact name, by previous mapping
+ * and by words of name. Each call searches the next name of prepared names.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FinderBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    public int catalogSize;
+
+    private EPGFinder finder;
+    private String[] exactNames;
+    private String[] mappedNames;
+    private String[] fuzzyNames;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        BenchmarkData data = new BenchmarkData(catalogSize);
+        finder = Matcher.createFinder(data.getEpgs(), data.getMapping());
+        exactNames = data.getExactNames();
+        mappedNames = data.getMappedNames();
+        fuzzyNames = data.getFuzzyNames();
+    }
+
+    @Benchmark
+    public SortedSet<FindResult> findExact() {
+        return finder.findEPG(exactNames[nextIndex()], null);
+    }
+
+    @Benchmark
+    public SortedSet<FindResult> findMapped() {
+        return finder.findEPG(mappedNames[nextIndex()], null);
+    }
+
+    @Benchmark
+    public SortedSet<FindResult> findFuzzy() {
+        return finder.findEPG(fuzzyNames[nextIndex()], null);
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = index + 1 < exactNames.length ? index + 1 : 0;
+        return index;
+    }
+}
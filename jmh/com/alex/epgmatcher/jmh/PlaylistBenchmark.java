@@ -0,0 +1,69 @@
+package com.alex.epgmatcher.jmh;
+
+import com.alex.epgmatcher.beans.Channel;
+import com.alex.epgmatcher.util.DataHandler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of parsing of playlist by {@link DataHandler#getChannels(java.io.InputStream)} from memory
+ * and of saving by {@link DataHandler#saveM3U(List, File)} to new and to unchanged file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlaylistBenchmark {
+    private static final int CATALOG_SIZE = 10000;
+
+    @Param({"1000", "10000", "100000"})
+    public int playlistSize;
+
+    private byte[] m3u;
+    private List<Channel> channels;
+    private File newFile;
+    private File unchangedFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkData data = new BenchmarkData(CATALOG_SIZE);
+        m3u = data.getM3U(playlistSize);
+        channels = data.getChannels(playlistSize);
+        newFile = File.createTempFile("benchmark", ".m3u");
+        unchangedFile = File.createTempFile("benchmark", ".m3u");
+        DataHandler.saveM3U(channels, unchangedFile);
+    }
+
+    @Setup(Level.Invocation)
+    public void deleteNewFile() {
+        newFile.delete();
+    }
+
+    @TearDown
+    public void tearDown() {
+        newFile.delete();
+        unchangedFile.delete();
+    }
+
+    @Benchmark
+    public List<Channel> getChannels() throws IOException {
+        return DataHandler.getChannels(new ByteArrayInputStream(m3u));
+    }
+
+    @Benchmark
+    public boolean saveM3U() throws IOException {
+        return DataHandler.saveM3U(channels, newFile);
+    }
+
+    @Benchmark
+    public boolean saveM3UUnchanged() throws IOException {
+        return DataHandler.saveM3U(channels, unchangedFile);
+    }
+}
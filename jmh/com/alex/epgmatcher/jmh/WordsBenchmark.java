@@ -0,0 +1,49 @@
+package com.alex.epgmatcher.jmh;
+
+import com.alex.epgmatcher.util.EPGFinder;
+import com.alex.epgmatcher.util.Synonyms;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of splitting of names to words and of synonym lookup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WordsBenchmark {
+    private static final int NAME_COUNT = 1000;
+    private static final String[] WORDS = {"ПЕРВЫЙ", "канал", "1ST", "TV", "ТЕЛЕКАНАЛ", "SPORT", "Russian", "HD"};
+
+    private String[] names;
+    private Synonyms synonyms;
+    private int nextName;
+    private int nextWord;
+
+    @Setup
+    public void setUp() {
+        names = new BenchmarkData(NAME_COUNT).getFuzzyNames();
+        for (int i = 0; i < names.length; i++) {
+            names[i] = names[i].toUpperCase();
+        }
+        synonyms = new Synonyms();
+    }
+
+    @Benchmark
+    public String[] getWords() {
+        String name = names[nextName];
+        nextName = nextName + 1 < names.length ? nextName + 1 : 0;
+        return EPGFinder.getWords(name);
+    }
+
+    @Benchmark
+    public String getSynonym() {
+        String word = WORDS[nextWord];
+        nextWord = nextWord + 1 < WORDS.length ? nextWord + 1 : 0;
+        return synonyms.getSynonym(word);
+    }
+}
@@ -0,0 +1,178 @@
+package com.alex.epgmatcher;
+
+import com.alex.epgmatcher.beans.BatchItem;
+import com.alex.epgmatcher.beans.BatchResult;
+import com.alex.epgmatcher.beans.Channel;
+import com.alex.epgmatcher.beans.EPG;
+import com.alex.epgmatcher.util.DataHandler;
+import com.alex.epgmatcher.util.EPGFinder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Class for matching many playlists against one EPG.
+ * EPG index is built once and shared, playlists are loaded, matched and saved in parallel
+ * by fixed count of workers, each playlist is matched in its worker thread.
+ */
+public class BatchMatcher {
+    private final static Logger logger = Logger.getGlobal();
+    private static final String COMMENT = "#";
+    private static final String ERROR_MANIFEST = "Wrong manifest line %d: %s";
+    private static final String MSG_START = "Batch matching of %d playlists by %d workers";
+    private static final String MSG_DONE = "Playlist %d of %d done: %s";
+    private static final String ERROR_ITEM = "Playlist %d of %d failed: %s: %s";
+    private static final String SUMMARY_HEADER = "%8s %8s %8s %8s %15s  %s";
+    private static final String SUMMARY_LINE = "%8d %8d %8d %8d %7d/%-7d  %s -> %s %s";
+    private static final String SUMMARY_TOTAL = "Playlists: %d, failed: %d, channels: %d, matched: %d, time: %d ms";
+    private static final String CR = "\r\n";
+    private static final long NANOS_IN_MILLI = 1000000;
+
+    private final EPGFinder finder;
+    private final int workers;
+
+    /**
+     * Constructs new BatchMatcher and builds index of EPGs.
+     *
+     * @param epgs    list of {@link EPG}
+     * @param mapping map of previously matched epg to channels
+     * @param workers count of playlists processed in parallel
+     */
+    public BatchMatcher(List<EPG> epgs, Map<String, String> mapping, int workers) {
+        this.finder = Matcher.createFinder(epgs, mapping);
+        this.workers = Math.max(workers, 1);
+    }
+
+    /**
+     * Read manifest of batch matching.
+     * Each line contains playlist url and output filename separated by whitespace,
+     * empty lines and lines starting with {@link BatchMatcher#COMMENT} are skipped.
+     *
+     * @param file manifest file in UTF-8
+     * @return playlists for matching
+     * @throws IOException if file can't be read or has wrong line
+     */
+    public static List<BatchItem> readManifest(File file) throws IOException {
+        List<BatchItem> items = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith(COMMENT)) continue;
+                String[] parts = line.split("\\s+", 2);
+                if (parts.length < 2) {
+                    throw new IOException(String.format(ERROR_MANIFEST, number, line));
+                }
+                items.add(new BatchItem(parts[0], parts[1]));
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Load, match and save all playlists. Error of one playlist doesn't stop others.
+     *
+     * @param items playlists for matching
+     * @return results in order of items
+     * @throws InterruptedException if current thread was interrupted while waiting
+     */
+    public List<BatchResult> match(List<BatchItem> items) throws InterruptedException {
+        logger.info(String.format(MSG_START, items.size(), workers));
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<BatchResult>> futures = new ArrayList<>();
+            for (BatchItem item : items) {
+                futures.add(executor.submit(() -> match(item)));
+            }
+            List<BatchResult> results = new ArrayList<>();
+            for (Future<BatchResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    // match(BatchItem) catches exceptions, only errors are left
+                    throw new IllegalStateException(e.getCause());
+                }
+                BatchResult result = results.get(results.size() - 1);
+                if (result.isSuccessful()) {
+                    logger.info(String.format(MSG_DONE, results.size(), items.size(), result.getItem()));
+                } else {
+                    logger.warning(String.format(ERROR_ITEM, results.size(), items.size(), result.getItem(),
+                            result.getError()));
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        }
+    }
+
+    private BatchResult match(BatchItem item) {
+        BatchResult result = new BatchResult(item);
+        try {
+            long start = System.nanoTime();
+            List<Channel> channels = SourceLoader.loadChannels(item.getM3uUrl(), null);
+            long loaded = System.nanoTime();
+            result.setLoadMillis((loaded - start) / NANOS_IN_MILLI);
+            Matcher.matchEpg(channels, finder, 1);
+            long matched = System.nanoTime();
+            result.setMatchMillis((matched - loaded) / NANOS_IN_MILLI);
+            result.setChanged(DataHandler.saveM3U(channels, new File(item.getOutputFilename())));
+            result.setSaveMillis((System.nanoTime() - matched) / NANOS_IN_MILLI);
+            result.setChannelCount(channels.size());
+            int matchedCount = 0;
+            for (Channel channel : channels) {
+                if (!channel.getEPGName().isEmpty()) {
+                    matchedCount++;
+                }
+            }
+            result.setMatchedCount(matchedCount);
+        } catch (Exception e) {
+            result.setError(e.toString());
+        }
+        return result;
+    }
+
+    /**
+     * Format table of per playlist timing in milliseconds.
+     *
+     * @param results       results of batch matching
+     * @param elapsedMillis wall time of batch matching
+     * @return summary
+     */
+    public static String getSummary(List<BatchResult> results, long elapsedMillis) {
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format(SUMMARY_HEADER, "load", "match", "save", "total", "matched", "playlist"));
+        summary.append(CR);
+        int failed = 0;
+        long channels = 0;
+        long matched = 0;
+        for (BatchResult result : results) {
+            String status = result.isSuccessful() ? (result.isChanged() ? "" : "(not changed)") : result.getError();
+            summary.append(String.format(SUMMARY_LINE, result.getLoadMillis(), result.getMatchMillis(),
+                    result.getSaveMillis(), result.getTotalMillis(), result.getMatchedCount(),
+                    result.getChannelCount(), result.getItem().getM3uUrl(), result.getItem().getOutputFilename(),
+                    status));
+            summary.append(CR);
+            failed += result.isSuccessful() ? 0 : 1;
+            channels += result.getChannelCount();
+            matched += result.getMatchedCount();
+        }
+        summary.append(String.format(SUMMARY_TOTAL, results.size(), failed, channels, matched, elapsedMillis));
+        return summary.toString();
+    }
+}
@@ -0,0 +1,468 @@
+package com.alex.epgmatcher;
+
+import com.alex.epgmatcher.beans.BatchItem;
+import com.alex.epgmatcher.beans.BatchResult;
+import com.alex.epgmatcher.beans.Channel;
+import com.alex.epgmatcher.beans.EPG;
+import com.alex.epgmatcher.beans.EPGSource;
+import com.alex.epgmatcher.beans.LoadData;
+import com.alex.epgmatcher.beans.Progress;
+import com.alex.epgmatcher.util.DataHandler;
+import com.alex.epgmatcher.util.RunMetrics;
+import com.alex.epgmatcher.util.SourceCache;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.alex.epgmatcher.util.DataHandler.MAPPING_FILENAME;
+
+/**
+ * Start class for console mode.
+ * It doesn't depend on JavaFX, so it can be started without loading of GUI classes.
+ */
+public class Console {
+
+    private final static Logger logger = Logger.getGlobal();
+    private static final String ERROR_M3U_SAVE = "Error on save m3u: ";
+
+    private static final String ERROR_GET_DATA = "Error on get M3U or EPG: ";
+    private static final String ERROR_CACHE = "Error on create cache: ";
+    private static final String ERROR_MANIFEST = "Error on read manifest: ";
+    private static final String ERROR_SERVER = "Error on start server: ";
+    private static final String ERROR_REFRESH = "Error on refresh playlist: ";
+    private static final String ERROR_REPORT = "Error on write report: ";
+    private static final String ERROR_RELOAD = "Error on reload EPG, previous EPG is used: ";
+    private static final String MSG_EPG_CHANGED = "EPG changed, %d EPGs, all channels are matched again";
+    private static final String MSG_CACHE = "Cache hits: %d, misses: %d, bytes saved: %d";
+    private static final long MEGABYTE = 1024 * 1024;
+    private static final long NANOS_IN_MILLI = 1000000;
+    private static final long DEFAULT_RELOAD_MINUTES = 60;
+    private static final Level DEFAULT_LEVEL = Level.FINE;
+
+    /**
+     * Start matching in console mode with given arguments or show help without arguments.
+     *
+     * @param args arguments of console mode
+     */
+    public static void main(String[] args) {
+        if (args.length > 0) {
+            setLogger(logger, DEFAULT_LEVEL);
+            // batch and server modes need only two arguments
+            if (args.length < 2) {
+                showHelp();
+            } else {
+                String m3uUrl = "";
+                List<EPGSource> epgSources = new ArrayList<>();
+                String saveFilename = "";
+                String manifestFilename = "";
+                int serverPort = -1;
+                long reloadMinutes = DEFAULT_RELOAD_MINUTES;
+                long refreshMinutes = 0;
+                int parallelism = Matcher.DEFAULT_PARALLELISM;
+                boolean fullEpg = false;
+                String cacheDir = "";
+                long cacheSize = 0;
+                String reportFilename = "";
+                boolean reportChannels = false;
+                for (String arg : args) {
+                    if (arg.length() < 6) {
+                        showHelp();
+                    }
+                    int index = arg.indexOf(":");
+                    if (index < 1) {
+                        showHelp();
+                    }
+                    String argType = arg.substring(0, index).toLowerCase();
+                    switch (argType) {
+                        case "-m3u":
+                            m3uUrl = arg.substring(index + 1, arg.length()).replaceAll("\"", "");
+                            break;
+                        case "-epg":
+                            // on equal priority the earlier source wins
+                            epgSources.add(new EPGSource(arg.substring(index + 1, arg.length()).replaceAll("\"", ""),
+                                    EPGSource.DEFAULT_PRIORITY));
+                            break;
+                        case "-priority":
+                            // priority of the preceding EPG source
+                            if (epgSources.isEmpty()) {
+                                showHelp();
+                            }
+                            try {
+                                epgSources.get(epgSources.size() - 1).setPriority(
+                                        Integer.parseInt(arg.substring(index + 1).replaceAll("\"", "")));
+                            } catch (NumberFormatException e) {
+                                showHelp();
+                            }
+                            break;
+                        case "-output":
+                            saveFilename = arg.substring(index + 1, arg.length()).replaceAll("\"", "");
+                            break;
+                        case "-batch":
+                            manifestFilename = arg.substring(index + 1).replaceAll("\"", "");
+                            break;
+                        case "-server":
+                            try {
+                                serverPort = Integer.parseInt(arg.substring(index + 1).replaceAll("\"", ""));
+                            } catch (NumberFormatException e) {
+                                showHelp();
+                            }
+                            break;
+                        case "-reload":
+                            try {
+                                reloadMinutes = Long.parseLong(arg.substring(index + 1).replaceAll("\"", ""));
+                            } catch (NumberFormatException e) {
+                                showHelp();
+                            }
+                            break;
+                        case "-refresh":
+                            try {
+                                refreshMinutes = Long.parseLong(arg.substring(index + 1).replaceAll("\"", ""));
+                            } catch (NumberFormatException e) {
+                                showHelp();
+                            }
+                            break;
+                        case "-threads":
+                            try {
+                                parallelism = Integer.parseInt(arg.substring(index + 1).replaceAll("\"", ""));
+                            } catch (NumberFormatException e) {
+                                showHelp();
+                            }
+                            break;
+                        case "-fullepg":
+                            fullEpg = Boolean.parseBoolean(arg.substring(index + 1).replaceAll("\"", ""));
+                            break;
+                        case "-cache":
+                            cacheDir = arg.substring(index + 1).replaceAll("\"", "");
+                            break;
+                        case "-cachesize":
+                            try {
+                                cacheSize = Long.parseLong(arg.substring(index + 1).replaceAll("\"", "")) * MEGABYTE;
+                            } catch (NumberFormatException e) {
+                                showHelp();
+                            }
+                            break;
+                        case "-report":
+                            reportFilename = arg.substring(index + 1).replaceAll("\"", "");
+                            break;
+                        case "-reportchannels":
+                            reportChannels = Boolean.parseBoolean(arg.substring(index + 1).replaceAll("\"", ""));
+                            break;
+                        case "-loglevel":
+                            String logLevel = arg.substring(index + 1, arg.length()).toUpperCase().replaceAll("\"", "");
+                            try {
+                                setLogger(logger, Level.parse(logLevel));
+                            } catch (Exception e) {
+                                logger.severe(e.getMessage());
+                                System.exit(0);
+                            }
+                            break;
+                        default:
+                            showHelp();
+                    }
+                }
+                boolean batch = !manifestFilename.isEmpty();
+                boolean server = serverPort >= 0;
+                if (epgSources.isEmpty() || !batch && !server && (m3uUrl.isEmpty() || saveFilename.isEmpty())) {
+                    showHelp();
+                } else {
+                    File report = reportFilename.isEmpty() ? null : new File(reportFilename);
+                    if (report != null || server) {
+                        // server keeps metrics for its whole life, so channel details aren't kept
+                        RunMetrics.setCurrent(new RunMetrics(reportChannels && !server));
+                    }
+                    SourceCache cache = null;
+                    if (!cacheDir.isEmpty()) {
+                        try {
+                            cache = new SourceCache(new File(cacheDir), cacheSize);
+                            DataHandler.setSourceCache(cache);
+                        } catch (IOException e) {
+                            logger.severe(ERROR_CACHE + e.getMessage());
+                        }
+                    }
+                    if (server) {
+                        serve(epgSources, fullEpg, serverPort, parallelism, reloadMinutes);
+                    } else if (batch) {
+                        matchBatch(manifestFilename, epgSources, parallelism, fullEpg);
+                    } else if (refreshMinutes > 0) {
+                        watch(m3uUrl, epgSources, saveFilename, parallelism, fullEpg, refreshMinutes, reloadMinutes,
+                                report);
+                    } else {
+                        match(m3uUrl, epgSources, saveFilename, parallelism, fullEpg);
+                    }
+                    if (report != null) {
+                        writeReport(report);
+                    }
+                    if (cache != null) {
+                        // the rest of partially read EPG is cached in background
+                        try {
+                            cache.awaitDrains();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        logger.fine(String.format(MSG_CACHE, cache.getHits(), cache.getMisses(),
+                                cache.getBytesSaved()));
+                    }
+                }
+            }
+        } else {
+            showHelp();
+        }
+        System.exit(0);
+    }
+
+
+    /**
+     * Start matching in console mode.
+     *
+     * @param m3uUrl       url of m3u playlist
+     * @param epgSources   EPG sources in order of priority
+     * @param saveFilename name of saved M3U file
+     * @param parallelism  count of matching threads
+     * @param fullEpg      read whole EPG instead of stopping after channels section
+     */
+    private static void match(String m3uUrl, List<EPGSource> epgSources, String saveFilename, int parallelism,
+                              boolean fullEpg) {
+        LoadData loadData;
+        try {
+            loadData = new SourceLoader(m3uUrl, epgSources, fullEpg).load(Console::logProgress);
+        } catch (Exception e) {
+            logger.severe(ERROR_GET_DATA + e.getMessage());
+            return;
+        }
+
+        Map<String, String> dictionary = DataHandler.load(new TreeMap<String, String>(), MAPPING_FILENAME);
+        Matcher.matchEpg(loadData.getChannels(), loadData.getEpgs(), dictionary, parallelism);
+        File file = new File(saveFilename);
+        try {
+            DataHandler.saveM3U(loadData.getChannels(), file);
+        } catch (IOException e) {
+            logger.severe(ERROR_M3U_SAVE + e.getMessage());
+        }
+    }
+
+    /**
+     * Start matching of playlists from manifest in console mode.
+     * EPG is loaded and indexed once for all playlists.
+     *
+     * @param manifestFilename name of manifest file with playlist url and output filename in each line
+     * @param epgSources       EPG sources in order of priority
+     * @param workers          count of playlists matched in parallel
+     * @param fullEpg          read whole EPG instead of stopping after channels section
+     */
+    private static void matchBatch(String manifestFilename, List<EPGSource> epgSources, int workers,
+                                   boolean fullEpg) {
+        long start = System.nanoTime();
+        List<BatchItem> items;
+        List<EPG> epgs;
+        try {
+            items = BatchMatcher.readManifest(new File(manifestFilename));
+        } catch (IOException e) {
+            logger.severe(ERROR_MANIFEST + e.getMessage());
+            return;
+        }
+        try {
+            epgs = new SourceLoader(null, epgSources, fullEpg).loadEpgs(Console::logProgress);
+        } catch (Exception e) {
+            logger.severe(ERROR_GET_DATA + e.getMessage());
+            return;
+        }
+        Map<String, String> dictionary = DataHandler.load(new TreeMap<String, String>(), MAPPING_FILENAME);
+        BatchMatcher matcher = new BatchMatcher(epgs, dictionary, workers);
+        try {
+            List<BatchResult> results = matcher.match(items);
+            logger.info(BatchMatcher.getSummary(results, (System.nanoTime() - start) / NANOS_IN_MILLI));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Start matching in console mode repeated with fixed delay until JVM is stopped.
+     * Only added or renamed channels are searched on refresh and output file is rewritten only if it is changed.
+     * EPG is reloaded before refresh when reload delay is elapsed, all channels are searched again if it is changed.
+     *
+     * @param m3uUrl         url of m3u playlist
+     * @param epgSources     EPG sources in order of priority
+     * @param saveFilename   name of saved M3U file
+     * @param parallelism    count of matching threads
+     * @param fullEpg        read whole EPG instead of stopping after channels section
+     * @param refreshMinutes delay in minutes between refreshes of playlist
+     * @param reloadMinutes  delay in minutes between reloads of EPG, 0 for disabling reload
+     * @param report         file for report of all refreshes written after each refresh or null
+     */
+    private static void watch(String m3uUrl, List<EPGSource> epgSources, String saveFilename, int parallelism,
+                              boolean fullEpg, long refreshMinutes, long reloadMinutes, File report) {
+        SourceLoader loader = new SourceLoader(null, epgSources, fullEpg);
+        List<EPG> epgs;
+        try {
+            epgs = loader.loadEpgs(Console::logProgress);
+        } catch (Exception e) {
+            logger.severe(ERROR_GET_DATA + e.getMessage());
+            return;
+        }
+        long loaded = System.nanoTime();
+        Map<String, String> dictionary = DataHandler.load(new TreeMap<String, String>(), MAPPING_FILENAME);
+        RefreshMatcher matcher = new RefreshMatcher(Matcher.createFinder(epgs, dictionary), parallelism);
+        File file = new File(saveFilename);
+        while (!Thread.currentThread().isInterrupted()) {
+            if (reloadMinutes > 0 && System.nanoTime() - loaded >= TimeUnit.MINUTES.toNanos(reloadMinutes)) {
+                loaded = System.nanoTime();
+                try {
+                    List<EPG> newEpgs = loader.loadEpgs(Console::logProgress);
+                    if (!isSameCatalog(epgs, newEpgs)) {
+                        // results of previous matcher can refer to removed or renamed EPGs
+                        epgs = newEpgs;
+                        matcher = new RefreshMatcher(Matcher.createFinder(epgs, dictionary), parallelism);
+                        logger.fine(String.format(MSG_EPG_CHANGED, epgs.size()));
+                    }
+                } catch (Exception e) {
+                    logger.warning(ERROR_RELOAD + e.getMessage());
+                }
+            }
+            try {
+                List<Channel> channels = SourceLoader.loadChannels(m3uUrl, Console::logProgress);
+                matcher.matchEpg(channels);
+                DataHandler.saveM3U(channels, file);
+            } catch (IOException e) {
+                logger.severe(ERROR_REFRESH + e.getMessage());
+            }
+            if (report != null) {
+                writeReport(report);
+            }
+            try {
+                TimeUnit.MINUTES.sleep(refreshMinutes);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return true if both lists contain EPGs with the same ids and names in the same order
+     */
+    private static boolean isSameCatalog(List<EPG> first, List<EPG> second) {
+        if (first.size() != second.size()) {
+            return false;
+        }
+        for (int i = 0; i < first.size(); i++) {
+            EPG epg = first.get(i);
+            EPG other = second.get(i);
+            if (!epg.getId().equals(other.getId()) || !epg.getName().equals(other.getName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Start headless server matching channels with resident EPG index until JVM is stopped.
+     *
+     * @param epgSources    EPG sources in order of priority
+     * @param fullEpg       read whole EPG instead of stopping after channels section
+     * @param port          port on loopback address
+     * @param threads       count of request handling threads
+     * @param reloadMinutes delay in minutes between reloads of EPG, 0 for disabling reload
+     */
+    private static void serve(List<EPGSource> epgSources, boolean fullEpg, int port, int threads,
+                              long reloadMinutes) {
+        Map<String, String> dictionary = DataHandler.load(new TreeMap<String, String>(), MAPPING_FILENAME);
+        MatchServer server = new MatchServer(epgSources, fullEpg, dictionary, port, threads, reloadMinutes);
+        try {
+            server.start();
+        } catch (Exception e) {
+            logger.severe(ERROR_SERVER + e.getMessage());
+            server.stop();
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        try {
+            server.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Write JSON report of current {@link RunMetrics}.
+     *
+     * @param report file for report
+     */
+    private static void writeReport(File report) {
+        RunMetrics metrics = RunMetrics.getCurrent();
+        if (metrics == null) return;
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(report), StandardCharsets.UTF_8)) {
+            metrics.writeJson(writer);
+        } catch (IOException e) {
+            logger.severe(ERROR_REPORT + e.getMessage());
+        }
+    }
+
+    /**
+     * Log progress of source reading, final progress with throughput is logged on higher level.
+     *
+     * @param progress progress of one source
+     */
+    private static void logProgress(Progress progress) {
+        if (progress.isFinished()) {
+            logger.fine(progress.toString());
+        } else {
+            logger.finer(progress.toString());
+        }
+    }
+
+    /**
+     * Prints help for console mode usage.
+     */
+    private static void showHelp() {
+        System.out.println("EPG Matcher.");
+        System.out.println("Match channels with EPG.");
+        System.out.println("Usage:");
+        System.out.println("epgmatcher -m3u:\"iptv playlist url in m3u format\" " +
+                "-epg:\"EPG url in xml or xml.gz format\" [-priority:\"priority of preceding EPG, default 0\"] " +
+                "[-epg:\"next EPG url\" ...] " +
+                "-output:\"new m3u filename\" " +
+                "[-threads:\"count of matching threads\"] " +
+                "[-fullepg:\"true|false\"] " +
+                "[-refresh:\"minutes between playlist refreshes, matching is repeated until stopped\"] " +
+                "[-reload:\"minutes between EPG reloads on refresh, default 60, 0 for no reload\"] " +
+                "[-cache:\"cache directory\"] " +
+                "[-cachesize:\"maximal cache size in MB\"] " +
+                "[-report:\"JSON file for timings and counters of run\"] " +
+                "[-reportchannels:\"true|false\"] " +
+                "[-loglevel:\"ALL|SEVERE|OFF\"] ");
+        System.out.println("Batch mode:");
+        System.out.println("epgmatcher -batch:\"manifest with playlist url and output filename in each line\" " +
+                "-epg:\"EPG url in xml or xml.gz format\" [-epg:\"next EPG url\" ...] " +
+                "[-threads:\"count of playlists matched in parallel\"] [other options]");
+        System.out.println("Server mode:");
+        System.out.println("epgmatcher -server:\"port on localhost\" " +
+                "-epg:\"EPG url in xml or xml.gz format\" [-epg:\"next EPG url\" ...] " +
+                "[-reload:\"minutes between EPG reloads, 0 for no reload\"] " +
+                "[-threads:\"count of request threads\"] [other options]");
+        System.exit(0);
+    }
+
+    /**
+     * Set log level and add {@link ConsoleHandler}
+     *
+     * @param logger logger for add ConsoleHandler and setting level
+     * @param level  level of logging
+     */
+    static void setLogger(Logger logger, Level level) {
+        logger.setLevel(level);
+        ConsoleHandler handler = new ConsoleHandler();
+        handler.setLevel(level);
+        logger.addHandler(handler);
+    }
+}
@@ -1,23 +1,27 @@
 package com.alex.epgmatcher;
 
-import com.alex.epgmatcher.beans.Channel;
-import com.alex.epgmatcher.beans.EPG;
-import com.alex.epgmatcher.beans.InputStreamReaderData;
+import com.alex.epgmatcher.beans.EPGSource;
 import com.alex.epgmatcher.beans.LoadData;
-import com.alex.epgmatcher.util.DataHandler;
+import com.alex.epgmatcher.beans.Progress;
 import javafx.concurrent.Task;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Class for loading M3U playlist and EPG guide from given URLs.
+ * Loading is done by {@link SourceLoader}, its progress notifications update
+ * progress and message properties of task.
  * Created by Alex on 21.04.2017.
  */
 public class LoadTask extends Task<LoadData> {
 
-    private static final int TIMEOUT = 500;
     private final String m3uUrl;
-    private final String epgUrl;
+    private final List<EPGSource> epgSources;
+    private final SourceLoader loader;
+    private final Map<String, Progress> progressMap = new ConcurrentHashMap<>();
 
     /**
      * Constructs new LoadTask.
@@ -26,59 +30,72 @@ public class LoadTask extends Task<LoadData> {
      * @param epgUrl url of EPG guide
      */
     public LoadTask(String m3uUrl, String epgUrl) {
+        this(m3uUrl, epgUrl, false);
+    }
+
+    /**
+     * Constructs new LoadTask.
+     *
+     * @param m3uUrl  url of M3U playlist
+     * @param epgUrl  url of EPG guide
+     * @param fullEpg read whole EPG guide instead of stopping after channels section
+     */
+    public LoadTask(String m3uUrl, String epgUrl, boolean fullEpg) {
+        this(m3uUrl, Collections.singletonList(new EPGSource(epgUrl, EPGSource.DEFAULT_PRIORITY)), fullEpg);
+    }
+
+    /**
+     * Constructs new LoadTask.
+     *
+     * @param m3uUrl     url of M3U playlist
+     * @param epgSources EPG guides with their priorities
+     * @param fullEpg    read whole EPG guides instead of stopping after channels section
+     */
+    public LoadTask(String m3uUrl, List<EPGSource> epgSources, boolean fullEpg) {
         this.m3uUrl = m3uUrl;
-        this.epgUrl = epgUrl;
+        this.epgSources = epgSources;
+        this.loader = new SourceLoader(m3uUrl, epgSources, fullEpg);
         updateProgress(0, 1.0);
     }
 
 
     @Override
     protected LoadData call() throws Exception {
-        updateMessage("Loading M3U from " + m3uUrl);
-        InputStreamReaderData streamData = DataHandler.getInputStreamData(m3uUrl);
-        Thread thread = new ProgressThread(streamData);
-        thread.start();
-        List<Channel> channels = DataHandler.getChannels(streamData.getReader());
-        updateMessage("Loading EPG from " + epgUrl);
-        thread.interrupt();
-
-        streamData = DataHandler.getInputStreamData(epgUrl);
-        thread = new ProgressThread(streamData);
-        thread.start();
-        List<EPG> epgs = DataHandler.getEPG(streamData.getReader());
-        thread.interrupt();
+        updateMessage("Loading M3U from " + m3uUrl + " and EPG from " + epgSources);
+        LoadData loadData = loader.load(this::onProgress);
         updateProgress(1);
-        return new LoadData(channels, epgs);
-    }
-
-    private void updateProgress(double value) {
-        updateProgress(value, 1.0);
+        return loadData;
     }
 
     /**
-     * Class for updating the progress property
+     * Update progress by bytes read from all sources and message by throughput of each source.
+     * Progress is indeterminate until all sources are connected and while size of any source is unknown.
+     *
+     * @param progress progress of one source
      */
-    private class ProgressThread extends Thread {
-
-        private final InputStreamReaderData streamData;
-
-        private ProgressThread(InputStreamReaderData streamData) {
-            this.streamData = streamData;
-        }
-
-        @Override
-        public void run() {
-            double count = 0;
-            double size = 1;
-            while (!isInterrupted() && count < size) {
-                try {
-                    Thread.sleep(TIMEOUT);
-                } catch (InterruptedException ignored) {
-                }
-                count = streamData.getCount();
-                size = streamData.getSize();
-                updateProgress(count / size);
+    private void onProgress(Progress progress) {
+        progressMap.put(progress.getSource(), progress);
+        double count = 0;
+        double size = 0;
+        StringBuilder message = new StringBuilder();
+        for (String source : loader.getSourceNames()) {
+            Progress sourceProgress = progressMap.get(source);
+            if (sourceProgress == null) {
+                size = -1;
+                continue;
+            }
+            if (message.length() > 0) {
+                message.append("; ");
             }
+            message.append(sourceProgress);
+            count += sourceProgress.getBytes();
+            size = sourceProgress.getSize() < 0 || size < 0 ? -1 : size + sourceProgress.getSize();
         }
+        updateProgress(size > 0 ? count / size : -1);
+        updateMessage(message.toString());
+    }
+
+    private void updateProgress(double value) {
+        updateProgress(value, 1.0);
     }
 }
@@ -0,0 +1,292 @@
+package com.alex.epgmatcher;
+
+import com.alex.epgmatcher.beans.Channel;
+import com.alex.epgmatcher.beans.EPG;
+import com.alex.epgmatcher.beans.EPGSource;
+import com.alex.epgmatcher.beans.FindResult;
+import com.alex.epgmatcher.util.DataHandler;
+import com.alex.epgmatcher.util.EPGFinder;
+import com.alex.epgmatcher.util.RunMetrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * Headless HTTP server keeping EPG index in memory.
+ * EPG is reloaded in background with fixed delay and new index replaces old one atomically,
+ * requests in progress finish with index they started with.
+ * Server listens only on loopback address.
+ * <p>
+ * Endpoints:
+ * <ul>
+ * <li><code>GET /match?name=channel name[&amp;tvg-id=id]</code> - equality type in the first line,
+ * then rate, id and name of found EPGs separated by tab, one EPG per line</li>
+ * <li><code>POST /m3u</code> - playlist in request body, matched playlist in response</li>
+ * <li><code>GET /status</code> - count of EPGs, time of loading and counters</li>
+ * <li><code>GET /metrics</code> - {@link RunMetrics} of loading and matching since start as JSON</li>
+ * </ul>
+ */
+public class MatchServer {
+    private final static Logger logger = Logger.getGlobal();
+    private static final String ERROR_RELOAD = "Error on reload EPG, previous EPG is used: ";
+    private static final String ERROR_REQUEST = "Error on request %s: %s";
+    private static final String MSG_STARTED = "Match server started on %s";
+    private static final String MSG_LOADED = "EPG loaded: %d channels in %d ms";
+    private static final String PATH_MATCH = "/match";
+    private static final String PATH_M3U = "/m3u";
+    private static final String PATH_STATUS = "/status";
+    private static final String PATH_METRICS = "/metrics";
+    private static final String PARAM_NAME = "name";
+    private static final String PARAM_TVG_ID = "tvg-id";
+    private static final String METHOD_GET = "GET";
+    private static final String METHOD_POST = "POST";
+    private static final String CONTENT_TYPE = "Content-Type";
+    private static final String TEXT_TYPE = "text/plain; charset=UTF-8";
+    private static final String M3U_TYPE = "audio/x-mpegurl; charset=UTF-8";
+    private static final String JSON_TYPE = "application/json; charset=UTF-8";
+    private static final String MSG_METRICS_DISABLED = "Metrics are disabled";
+    private static final String TAB = "\t";
+    private static final String NEW_LINE = "\n";
+    private static final String RELOAD_THREAD_NAME = "EPG reload";
+    private static final long NANOS_IN_MILLI = 1000000;
+
+    private final SourceLoader loader;
+    private final Map<String, String> mapping;
+    private final int port;
+    private final int threads;
+    private final long reloadMinutes;
+    private final AtomicReference<Catalog> catalog = new AtomicReference<>();
+    private final AtomicLong reloads = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private HttpServer server;
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Constructs new MatchServer.
+     *
+     * @param epgSources    EPG sources in order of priority
+     * @param fullEpg       read whole EPG instead of stopping after channels section
+     * @param mapping       map of previously matched epg to channels
+     * @param port          port on loopback address, 0 for any free port
+     * @param threads       count of request handling threads
+     * @param reloadMinutes delay in minutes between reloads of EPG, 0 for disabling reload
+     */
+    public MatchServer(List<EPGSource> epgSources, boolean fullEpg, Map<String, String> mapping, int port,
+                       int threads, long reloadMinutes) {
+        this.loader = new SourceLoader(null, epgSources, fullEpg);
+        this.mapping = mapping;
+        this.port = port;
+        this.threads = Math.max(threads, 1);
+        this.reloadMinutes = reloadMinutes;
+    }
+
+    /**
+     * Load EPG, build index and start listening.
+     *
+     * @throws Exception if EPG can't be loaded or server can't be started
+     */
+    public void start() throws Exception {
+        catalog.set(load());
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext(PATH_MATCH, exchange -> handle(exchange, METHOD_GET, this::match));
+        server.createContext(PATH_M3U, exchange -> handle(exchange, METHOD_POST, this::matchM3U));
+        server.createContext(PATH_STATUS, exchange -> handle(exchange, METHOD_GET, this::status));
+        server.createContext(PATH_METRICS, exchange -> handle(exchange, METHOD_GET, this::metrics));
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.start();
+        if (reloadMinutes > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, RELOAD_THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::reload, reloadMinutes, reloadMinutes, TimeUnit.MINUTES);
+        }
+        logger.fine(String.format(MSG_STARTED, server.getAddress()));
+    }
+
+    /**
+     * @return port server is listening on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Wait until server is stopped.
+     *
+     * @throws InterruptedException if current thread was interrupted while waiting
+     */
+    public void await() throws InterruptedException {
+        stopped.await();
+    }
+
+    /**
+     * Stop listening and reloading.
+     */
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        stopped.countDown();
+    }
+
+    /**
+     * Load EPG and replace index, previous index is kept on error.
+     */
+    public void reload() {
+        try {
+            catalog.set(load());
+            reloads.incrementAndGet();
+        } catch (Exception e) {
+            logger.warning(ERROR_RELOAD + e);
+        }
+    }
+
+    private Catalog load() throws Exception {
+        long start = System.nanoTime();
+        List<EPG> epgs = loader.loadEpgs(null);
+        Catalog result = new Catalog(Matcher.createFinder(epgs, mapping), epgs.size());
+        logger.fine(String.format(MSG_LOADED, epgs.size(), (System.nanoTime() - start) / NANOS_IN_MILLI));
+        return result;
+    }
+
+    private void match(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = getParameters(exchange);
+        String name = parameters.get(PARAM_NAME);
+        if (name == null || name.isEmpty()) {
+            send(exchange, 400, TEXT_TYPE, ("Parameter " + PARAM_NAME + " is required" + NEW_LINE)
+                    .getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        SortedSet<FindResult> results = catalog.get().finder.findEPG(name, parameters.get(PARAM_TVG_ID));
+        StringBuilder response = new StringBuilder();
+        response.append(Channel.EqualityType.getType(results)).append(NEW_LINE);
+        for (FindResult result : results) {
+            response.append(result.getRate()).append(TAB).append(result.getEpg().getId()).append(TAB)
+                    .append(result.getEpg().getName()).append(NEW_LINE);
+        }
+        send(exchange, 200, TEXT_TYPE, response.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void matchM3U(HttpExchange exchange) throws IOException {
+        List<Channel> channels = DataHandler.getChannels(exchange.getRequestBody());
+        // results aren't printed, matched playlist is the response
+        Matcher.findEpg(channels, catalog.get().finder, 1);
+        Matcher.removeDuplicates(channels);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long start = System.nanoTime();
+        long startBytes = RunMetrics.getStartBytes();
+        try (Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8)) {
+            DataHandler.writeM3U(channels, writer);
+        } finally {
+            RunMetrics.recordSince(RunMetrics.Phase.WRITE, start, startBytes);
+        }
+        send(exchange, 200, M3U_TYPE, output.toByteArray());
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        RunMetrics metrics = RunMetrics.getCurrent();
+        if (metrics == null) {
+            send(exchange, 404, TEXT_TYPE, (MSG_METRICS_DISABLED + NEW_LINE).getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8)) {
+            metrics.writeJson(writer);
+        }
+        send(exchange, 200, JSON_TYPE, output.toByteArray());
+    }
+
+    private void status(HttpExchange exchange) throws IOException {
+        Catalog current = catalog.get();
+        String response = "epgs: " + current.epgCount + NEW_LINE +
+                "loaded: " + new Date(current.loadedTime) + NEW_LINE +
+                "reloads: " + reloads.get() + NEW_LINE +
+                "requests: " + requests.get() + NEW_LINE;
+        send(exchange, 200, TEXT_TYPE, response.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void handle(HttpExchange exchange, String method, Handler handler) throws IOException {
+        requests.incrementAndGet();
+        try {
+            if (!method.equals(exchange.getRequestMethod())) {
+                send(exchange, 405, TEXT_TYPE, ("Method " + method + " is required" + NEW_LINE)
+                        .getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            handler.handle(exchange);
+        } catch (Exception e) {
+            logger.warning(String.format(ERROR_REQUEST, exchange.getRequestURI(), e));
+            send(exchange, 500, TEXT_TYPE, (e + NEW_LINE).getBytes(StandardCharsets.UTF_8));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int code, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set(CONTENT_TYPE, contentType);
+        exchange.sendResponseHeaders(code, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private static Map<String, String> getParameters(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) return parameters;
+        for (String pair : query.split("&")) {
+            int index = pair.indexOf('=');
+            String key = index < 0 ? pair : pair.substring(0, index);
+            String value = index < 0 ? "" : pair.substring(index + 1);
+            parameters.put(URLDecoder.decode(key, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+        }
+        return parameters;
+    }
+
+    /**
+     * Handler of request with checked method.
+     */
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    /**
+     * Index of loaded EPG, replaced as a whole on reload.
+     */
+    private static class Catalog {
+        private final EPGFinder finder;
+        private final int epgCount;
+        private final long loadedTime;
+
+        private Catalog(EPGFinder finder, int epgCount) {
+            this.finder = finder;
+            this.epgCount = epgCount;
+            this.loadedTime = System.currentTimeMillis();
+        }
+    }
+}
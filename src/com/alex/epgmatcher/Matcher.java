@@ -4,8 +4,15 @@ import com.alex.epgmatcher.beans.Channel;
 import com.alex.epgmatcher.beans.EPG;
 import com.alex.epgmatcher.beans.FindResult;
 import com.alex.epgmatcher.util.EPGFinder;
+import com.alex.epgmatcher.util.EPGIndex;
+import com.alex.epgmatcher.util.RunMetrics;
+import com.alex.epgmatcher.util.SearchCounters;
+import com.alex.epgmatcher.util.Synonyms;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static com.alex.epgmatcher.beans.Channel.EqualityType.FULL;
@@ -19,8 +26,13 @@ import static com.alex.epgmatcher.beans.Channel.EqualityType.PARTIAL;
 public final class Matcher {
     private final static Logger logger = Logger.getGlobal();
     private static final String MSG_PARTIAL_MATCH = "Partial match: %s -> %s";
+    private static final String MSG_CANDIDATES = "Candidates scored: %d, pruned: %d, aborted: %d";
     private static final String CR = "\r\n";
     private static final String[] STOP_WORDS = {"FM", "ФМ", "РАДИО", "RADIO"};
+    /**
+     * Default count of matching threads.
+     */
+    public static final int DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
 
     private Matcher() {
 
@@ -28,57 +40,192 @@ public final class Matcher {
 
     /**
      * Set EPG matched to channel for each channel in given list
+     * using {@link Matcher#DEFAULT_PARALLELISM} threads.
      *
      * @param channels list of {@link Channel}
      * @param epgs     list of {@link EPG}
      * @param mapping  map of previously matched epg to channels
      */
     public static void matchEpg(List<Channel> channels, List<EPG> epgs, Map<String, String> mapping) {
+        matchEpg(channels, epgs, mapping, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Set EPG matched to channel for each channel in given list.
+     * Channels are matched in parallel by {@link ForkJoinPool} sharing one {@link EPGIndex},
+     * result doesn't depend on count of threads.
+     *
+     * @param channels    list of {@link Channel}
+     * @param epgs        list of {@link EPG}
+     * @param mapping     map of previously matched epg to channels
+     * @param parallelism count of matching threads, 1 for matching in current thread
+     */
+    public static void matchEpg(List<Channel> channels, List<EPG> epgs, Map<String, String> mapping,
+                                int parallelism) {
+        matchEpg(channels, createFinder(epgs, mapping), parallelism);
+    }
+
+    /**
+     * Build index of EPGs and create finder, which can be shared for matching of several channel lists.
+     *
+     * @param epgs    list of {@link EPG}
+     * @param mapping map of previously matched epg to channels
+     * @return finder of EPG for channel names
+     */
+    public static EPGFinder createFinder(List<EPG> epgs, Map<String, String> mapping) {
+        long start = System.nanoTime();
+        long startBytes = RunMetrics.getStartBytes();
+        try {
+            Map<String, EPG> epgChannelMap = new HashMap<>();
+            for (EPG epgChannel : epgs) {
+                epgChannelMap.put(epgChannel.getName(), epgChannel);
+            }
+            Map<String, EPG> epgMap = new HashMap<>();
+            Map<String, String[]> epgWordsMap = new HashMap<>();
+            for (Map.Entry<String, EPG> entry : epgChannelMap.entrySet()) {
+                String name = entry.getValue().getNormalizedName();
+                epgWordsMap.put(name, entry.getValue().getWords());
+                epgMap.put(name, entry.getValue());
+            }
+
+            Map<String, EPG> epgIdMap = new HashMap<>();
+            for (EPG epg : epgs) {
+                if (!epg.getId().isEmpty() && !epgIdMap.containsKey(epg.getId())) {
+                    epgIdMap.put(epg.getId(), epg);
+                }
+            }
+
+            EPGIndex index = new EPGIndex(epgMap, epgWordsMap, epgIdMap, new Synonyms());
+            return new EPGFinder(index, mapping);
+        } finally {
+            RunMetrics.recordSince(RunMetrics.Phase.INDEX, start, startBytes);
+        }
+    }
+
+    /**
+     * Set EPG matched to channel for each channel in given list using prepared finder.
+     * Channels are matched in parallel by {@link ForkJoinPool},
+     * result doesn't depend on count of threads.
+     *
+     * @param channels       list of {@link Channel}
+     * @param channelMatcher finder created by {@link Matcher#createFinder(List, Map)}
+     * @param parallelism    count of matching threads, 1 for matching in current thread
+     */
+    public static void matchEpg(List<Channel> channels, EPGFinder channelMatcher, int parallelism) {
+        findEpg(channels, channelMatcher, parallelism);
+        removeDuplicates(channels);
+        printResult(channels);
+    }
+
+    /**
+     * Set found EPGs to each channel without stop words, found EPGs aren't deduplicated.
+     *
+     * @param channels       list of {@link Channel}
+     * @param channelMatcher finder created by {@link Matcher#createFinder(List, Map)}
+     * @param parallelism    count of matching threads, 1 for matching in current thread
+     */
+    static void findEpg(List<Channel> channels, EPGFinder channelMatcher, int parallelism) {
         logger.finest("Start matching...");
-        Map<String, EPG> epgChannelMap = new HashMap<>();
-        for (EPG epgChannel : epgs) {
-            epgChannelMap.put(epgChannel.getName(), epgChannel);
+        // counters are collected only with metrics, so searches don't allocate stats otherwise
+        SearchCounters counters = RunMetrics.isEnabled() && logger.isLoggable(Level.FINE)
+                ? new SearchCounters() : null;
+        RunMetrics.add(RunMetrics.Counter.CHANNELS, channels.size());
+        long start = System.nanoTime();
+        long startBytes = RunMetrics.getStartBytes();
+        try {
+            if (parallelism > 1 && channels.size() > MatchTask.THRESHOLD) {
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    pool.invoke(new MatchTask(channelMatcher, channels, 0, channels.size(), counters));
+                } finally {
+                    pool.shutdown();
+                }
+            } else {
+                matchChannels(channelMatcher, channels, 0, channels.size(), counters);
+            }
+        } finally {
+            RunMetrics.recordSince(RunMetrics.Phase.MATCH, start, startBytes);
         }
-        Map<String, EPG> epgMap = new HashMap<>();
-        Map<String, String[]> epgWordsMap = new HashMap<>();
-        for (Map.Entry<String, EPG> entry : epgChannelMap.entrySet()) {
-            String name = entry.getKey().toUpperCase().replaceAll(EPGFinder.NON_WORD_CHAR, "");
-            epgWordsMap.put(name, EPGFinder.getWords(entry.getKey().toUpperCase()));
-            epgMap.put(name, entry.getValue());
+        if (counters != null) {
+            logger.fine(String.format(MSG_CANDIDATES, counters.getScored(), counters.getPruned(),
+                    counters.getAborted()));
         }
+    }
 
-        EPGFinder channelMatcher = new EPGFinder(epgMap, epgWordsMap, mapping);
-        Map<String, Channel> fullMatchMap = new HashMap<>();
-        for (Channel channel : channels) {
-            // include non radio channels
-            if (!hasStopWord(channel.getName().toUpperCase())) {
-                channel.setFindResults(channelMatcher.findEPG(channel.getName()));
-                if (channel.getEqualityType().isMoreOrEqual(FULL)) {
-                    fullMatchMap.put(channel.getEpg().getName(), channel);
+    /**
+     * Remove EPGs fully matched to other channels from the top of partially matched channels.
+     *
+     * @param channels list of {@link Channel} with found EPGs
+     */
+    static void removeDuplicates(List<Channel> channels) {
+        long start = System.nanoTime();
+        long startBytes = RunMetrics.getStartBytes();
+        try {
+            boolean logPartial = logger.isLoggable(Level.FINEST);
+            Map<String, Channel> fullMatchMap = new HashMap<>();
+            for (Channel channel : channels) {
+                String fullMatchName = getFullMatchName(channel);
+                if (fullMatchName != null) {
+                    fullMatchMap.put(fullMatchName, channel);
                 }
-                if (channel.getEqualityType() == PARTIAL) {
+                if (logPartial && channel.getEqualityType() == PARTIAL) {
                     logger.finest(String.format(MSG_PARTIAL_MATCH, channel.getName(), channel.getEPGName()));
                 }
             }
+            // remove existing full matched epg from partial matched
+            for (Channel channel : channels) {
+                if (channel.getEqualityType() == PARTIAL) {
+                    removeDuplicates(channel.getFindResults(), fullMatchMap.keySet());
+                }
+            }
+        } finally {
+            RunMetrics.recordSince(RunMetrics.Phase.DEDUPE, start, startBytes);
         }
-        // remove existing full matched epg from partial matched
-        for (Channel channel : channels) {
-            if (channel.getEqualityType() == PARTIAL) {
-                if (fullMatchMap.get(channel.getEPGName()) != null) {
-                    Iterator<FindResult> iterator = channel.getFindResults().iterator();
-                    while (iterator.hasNext()) {
-                        FindResult result = iterator.next();
-                        if (fullMatchMap.get(result.getEpg().getName()) != null) {
-                            iterator.remove();
-                        } else {
-                            break;
-                        }
-                    }
+    }
+
+    /**
+     * @return name of EPG fully matched to channel without stop words or null
+     */
+    static String getFullMatchName(Channel channel) {
+        if (hasStopWord(channel.getName().toUpperCase())) {
+            return null;
+        }
+        if (channel.getEqualityType().isMoreOrEqual(FULL)) {
+            return channel.getEpg().getName();
+        }
+        return null;
+    }
+
+    /**
+     * Remove EPGs fully matched to other channels from the top of partially matched results.
+     *
+     * @param results        found EPGs of one channel
+     * @param fullMatchNames names of fully matched EPGs
+     */
+    static void removeDuplicates(SortedSet<FindResult> results, Set<String> fullMatchNames) {
+        if (Channel.EqualityType.getType(results) != PARTIAL) return;
+        if (fullMatchNames.contains(results.first().getEpg().getName())) {
+            Iterator<FindResult> iterator = results.iterator();
+            while (iterator.hasNext()) {
+                FindResult result = iterator.next();
+                if (fullMatchNames.contains(result.getEpg().getName())) {
+                    iterator.remove();
+                } else {
+                    break;
                 }
             }
         }
+    }
 
-        printResult(channels);
+    private static void matchChannels(EPGFinder channelMatcher, List<Channel> channels, int from, int to,
+                                      SearchCounters counters) {
+        for (int i = from; i < to; i++) {
+            Channel channel = channels.get(i);
+            // include non radio channels
+            if (!hasStopWord(channel.getName().toUpperCase())) {
+                channel.setFindResults(channelMatcher.findEPG(channel.getName(), channel.getTvgId(), counters));
+            }
+        }
     }
 
     private static boolean hasStopWord(String name) {
@@ -91,6 +238,7 @@ public final class Matcher {
     }
 
     private static void printResult(List<Channel> channels) {
+        if (!logger.isLoggable(Level.FINE)) return;
         StringBuilder partialBuffer = new StringBuilder();
         StringBuilder noneBuffer = new StringBuilder();
         int fullMatched = 0;
@@ -116,4 +264,43 @@ public final class Matcher {
         int count = (channels.size() - fullMatched - partialMatched);
         logger.fine("Non matched - " + count + ":" + CR + noneBuffer.toString());
     }
+
+    /**
+     * Task for matching range of channels.
+     */
+    private static class MatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 64;
+        private final EPGFinder channelMatcher;
+        private final List<Channel> channels;
+        private final int from;
+        private final int to;
+        private final SearchCounters counters;
+
+        private MatchTask(EPGFinder channelMatcher, List<Channel> channels, int from, int to,
+                          SearchCounters counters) {
+            this.channelMatcher = channelMatcher;
+            this.channels = channels;
+            this.from = from;
+            this.to = to;
+            this.counters = counters;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                // allocation of pool thread isn't seen by the thread which measures match phase
+                long startBytes = RunMetrics.getStartBytes();
+                try {
+                    matchChannels(channelMatcher, channels, from, to, counters);
+                } finally {
+                    RunMetrics.recordAllocation(RunMetrics.Phase.MATCH, startBytes);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new MatchTask(channelMatcher, channels, from, middle, counters),
+                        new MatchTask(channelMatcher, channels, middle, to, counters));
+            }
+        }
+    }
 }
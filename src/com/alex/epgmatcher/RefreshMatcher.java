@@ -0,0 +1,169 @@
+package com.alex.epgmatcher;
+
+import com.alex.epgmatcher.beans.Channel;
+import com.alex.epgmatcher.beans.FindResult;
+import com.alex.epgmatcher.util.EPGFinder;
+import com.alex.epgmatcher.util.RunMetrics;
+
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Class for repeated matching of changing playlist against the same EPG.
+ * Found EPGs of previous run are kept by channel name and tvg-id, only added or renamed channels are searched.
+ * Duplicates of fully matched EPGs are removed incrementally: results of kept channels are recalculated
+ * only if they contain EPG which became or stopped being fully matched.
+ * Result is the same as result of {@link Matcher#matchEpg(List, EPGFinder, int)}.
+ */
+public class RefreshMatcher {
+    private final static Logger logger = Logger.getGlobal();
+    private static final String MSG_REFRESH = "Refresh: channels %d, searched %d, removed %d, deduplicated %d, %d ms";
+    private static final String KEY_SEPARATOR = "\u0000";
+    private static final long NANOS_IN_MILLI = 1000000;
+
+    private final EPGFinder finder;
+    private final int parallelism;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private Map<String, Integer> keyCounts = new HashMap<>();
+    private final Map<String, Integer> fullMatchCounts = new HashMap<>();
+    private int searchedCount;
+    private int removedCount;
+
+    /**
+     * Constructs new RefreshMatcher without previous results.
+     *
+     * @param finder      finder created by {@link Matcher#createFinder(List, Map)}
+     * @param parallelism count of matching threads for searching of new channels
+     */
+    public RefreshMatcher(EPGFinder finder, int parallelism) {
+        this.finder = finder;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Set EPG matched to channel for each channel in given list reusing results of previous call.
+     *
+     * @param channels list of {@link Channel}
+     */
+    public void matchEpg(List<Channel> channels) {
+        long start = System.nanoTime();
+        String[] channelKeys = new String[channels.size()];
+        Map<String, Integer> newKeyCounts = new HashMap<>();
+        List<Channel> newChannels = new ArrayList<>();
+        for (int i = 0; i < channelKeys.length; i++) {
+            Channel channel = channels.get(i);
+            String key = getKey(channel);
+            channelKeys[i] = key;
+            if (newKeyCounts.merge(key, 1, Integer::sum) == 1 && !entries.containsKey(key)) {
+                newChannels.add(channel);
+            }
+        }
+        Matcher.findEpg(newChannels, finder, parallelism);
+        for (Channel channel : newChannels) {
+            entries.put(getKey(channel), new Entry(channel));
+        }
+        searchedCount = newChannels.size();
+
+        // update counts of fully matched EPG names and find names which were added or removed
+        Map<String, Boolean> touchedNames = new HashMap<>();
+        for (Map.Entry<String, Integer> keyCount : newKeyCounts.entrySet()) {
+            Integer oldCount = keyCounts.remove(keyCount.getKey());
+            int delta = keyCount.getValue() - (oldCount != null ? oldCount : 0);
+            if (delta != 0) {
+                updateFullMatchCount(entries.get(keyCount.getKey()), delta, touchedNames);
+            }
+        }
+        // keys left in previous counts are removed from playlist
+        removedCount = keyCounts.size();
+        for (Map.Entry<String, Integer> keyCount : keyCounts.entrySet()) {
+            updateFullMatchCount(entries.remove(keyCount.getKey()), -keyCount.getValue(), touchedNames);
+        }
+        Set<String> changedNames = new HashSet<>();
+        for (Map.Entry<String, Boolean> touched : touchedNames.entrySet()) {
+            if (touched.getValue() != fullMatchCounts.containsKey(touched.getKey())) {
+                changedNames.add(touched.getKey());
+            }
+        }
+
+        int deduplicated = 0;
+        long dedupeStart = System.nanoTime();
+        long startBytes = RunMetrics.getStartBytes();
+        try {
+            for (Entry entry : entries.values()) {
+                if (entry.results == null || entry.contains(changedNames)) {
+                    entry.deduplicate(fullMatchCounts.keySet());
+                    deduplicated++;
+                }
+            }
+        } finally {
+            RunMetrics.recordSince(RunMetrics.Phase.DEDUPE, dedupeStart, startBytes);
+        }
+        for (int i = 0; i < channelKeys.length; i++) {
+            SortedSet<FindResult> results = entries.get(channelKeys[i]).results;
+            if (!results.isEmpty() || channels.get(i).hasFindResults()) {
+                channels.get(i).setFindResults(results);
+            }
+        }
+        keyCounts = newKeyCounts;
+        logger.fine(String.format(MSG_REFRESH, channels.size(), searchedCount, removedCount, deduplicated,
+                (System.nanoTime() - start) / NANOS_IN_MILLI));
+    }
+
+    /**
+     * @return count of channels searched by the last call of {@link RefreshMatcher#matchEpg(List)}
+     */
+    public int getSearchedCount() {
+        return searchedCount;
+    }
+
+    /**
+     * @return count of channels removed from playlist since previous call of {@link RefreshMatcher#matchEpg(List)}
+     */
+    public int getRemovedCount() {
+        return removedCount;
+    }
+
+    private void updateFullMatchCount(Entry entry, int delta, Map<String, Boolean> touchedNames) {
+        String name = entry.fullMatchName;
+        if (name == null) return;
+        touchedNames.putIfAbsent(name, fullMatchCounts.containsKey(name));
+        int count = fullMatchCounts.getOrDefault(name, 0) + delta;
+        if (count > 0) {
+            fullMatchCounts.put(name, count);
+        } else {
+            fullMatchCounts.remove(name);
+        }
+    }
+
+    private static String getKey(Channel channel) {
+        // most channels have no tvg-id, name is used without copying
+        return channel.getTvgId().isEmpty() ? channel.getName() : channel.getName() + KEY_SEPARATOR + channel.getTvgId();
+    }
+
+    /**
+     * Found EPGs of channel before and after removing of duplicates.
+     */
+    private static class Entry {
+        private final SortedSet<FindResult> foundResults;
+        private final String fullMatchName;
+        private SortedSet<FindResult> results;
+
+        private Entry(Channel channel) {
+            foundResults = new TreeSet<>(channel.getFindResults());
+            fullMatchName = Matcher.getFullMatchName(channel);
+        }
+
+        private boolean contains(Set<String> names) {
+            if (names.isEmpty()) return false;
+            for (FindResult result : foundResults) {
+                if (names.contains(result.getEpg().getName())) return true;
+            }
+            return false;
+        }
+
+        private void deduplicate(Set<String> fullMatchNames) {
+            results = new TreeSet<>(foundResults);
+            Matcher.removeDuplicates(results, fullMatchNames);
+        }
+    }
+}
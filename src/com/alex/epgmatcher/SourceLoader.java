@@ -0,0 +1,181 @@
+package com.alex.epgmatcher;
+
+import com.alex.epgmatcher.beans.Channel;
+import com.alex.epgmatcher.beans.EPG;
+import com.alex.epgmatcher.beans.EPGSource;
+import com.alex.epgmatcher.beans.InputStreamReaderData;
+import com.alex.epgmatcher.beans.LoadData;
+import com.alex.epgmatcher.util.DataHandler;
+import com.alex.epgmatcher.util.EPGMerger;
+import com.alex.epgmatcher.util.ProgressListener;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+/**
+ * Class for loading M3U playlist and EPG guides from given URLs without dependency on GUI.
+ * Playlist and all guides are downloaded and parsed concurrently,
+ * guides are merged by {@link EPGMerger} as soon as they are parsed.
+ * Progress of each source is reported to {@link ProgressListener}.
+ */
+public class SourceLoader {
+
+    /**
+     * Name of playlist source in progress notifications.
+     */
+    public static final String SOURCE_M3U = "M3U";
+    /**
+     * Name of guide source in progress notifications, followed by number of source if there are several guides.
+     */
+    public static final String SOURCE_EPG = "EPG";
+    private static final String MSG_MERGED = "EPG sources merged: %d, channels: %d";
+    private final static Logger logger = Logger.getGlobal();
+    private final String m3uUrl;
+    private final List<EPGSource> epgSources;
+    private final boolean fullEpg;
+
+    /**
+     * Constructs new SourceLoader.
+     *
+     * @param m3uUrl  url of M3U playlist
+     * @param epgUrl  url of EPG guide
+     * @param fullEpg read whole EPG guide instead of stopping after channels section
+     */
+    public SourceLoader(String m3uUrl, String epgUrl, boolean fullEpg) {
+        this(m3uUrl, Collections.singletonList(new EPGSource(epgUrl, EPGSource.DEFAULT_PRIORITY)), fullEpg);
+    }
+
+    /**
+     * Constructs new SourceLoader.
+     *
+     * @param m3uUrl     url of M3U playlist, may be null if only {@link SourceLoader#loadEpgs(ProgressListener)} is used
+     * @param epgSources EPG guides with their priorities
+     * @param fullEpg    read whole EPG guides instead of stopping after channels section
+     */
+    public SourceLoader(String m3uUrl, List<EPGSource> epgSources, boolean fullEpg) {
+        this.m3uUrl = m3uUrl;
+        this.epgSources = new ArrayList<>(epgSources);
+        this.fullEpg = fullEpg;
+    }
+
+    /**
+     * @return names of all sources used in progress notifications
+     */
+    public List<String> getSourceNames() {
+        List<String> names = new ArrayList<>();
+        names.add(SOURCE_M3U);
+        for (int i = 0; i < epgSources.size(); i++) {
+            names.add(getEpgSourceName(i));
+        }
+        return names;
+    }
+
+    private String getEpgSourceName(int index) {
+        return epgSources.size() == 1 ? SOURCE_EPG : SOURCE_EPG + " " + (index + 1);
+    }
+
+    /**
+     * Load and parse playlist and guide.
+     *
+     * @param listener listener of reading progress of both sources or null
+     * @return loaded channels and EPGs
+     * @throws Exception exception thrown on loading
+     */
+    public LoadData load(ProgressListener listener) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(1 + epgSources.size());
+        try {
+            Future<List<Channel>> channels = executor.submit(() -> loadChannels(m3uUrl, listener));
+            List<EPG> epgs = loadEpgs(executor, listener);
+            return new LoadData(getResult(channels), epgs);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Load and merge only guides, for example for matching several playlists.
+     *
+     * @param listener listener of reading progress of guides or null
+     * @return merged EPGs
+     * @throws Exception exception thrown on loading
+     */
+    public List<EPG> loadEpgs(ProgressListener listener) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(epgSources.size());
+        try {
+            return loadEpgs(executor, listener);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Load and parse playlist.
+     *
+     * @param m3uUrl   url of M3U playlist
+     * @param listener listener of reading progress or null
+     * @return list of channels
+     * @throws IOException if an I/O error has occurred
+     */
+    public static List<Channel> loadChannels(String m3uUrl, ProgressListener listener) throws IOException {
+        InputStreamReaderData streamData = DataHandler.getInputStreamData(m3uUrl);
+        streamData.setProgressListener(SOURCE_M3U, listener);
+        return DataHandler.getChannels(streamData.getInputStream());
+    }
+
+    /**
+     * Load guides concurrently by given executor and merge them.
+     */
+    private List<EPG> loadEpgs(ExecutorService executor, ProgressListener listener) throws Exception {
+        int[] priorities = new int[epgSources.size()];
+        for (int i = 0; i < priorities.length; i++) {
+            priorities[i] = epgSources.get(i).getPriority();
+        }
+        EPGMerger merger = new EPGMerger(priorities);
+        List<Future<?>> epgs = new ArrayList<>();
+        for (int i = 0; i < epgSources.size(); i++) {
+            int source = i;
+            epgs.add(executor.submit(() -> {
+                InputStreamReaderData streamData = DataHandler.getInputStreamData(epgSources.get(source).getUrl());
+                streamData.setProgressListener(getEpgSourceName(source), listener);
+                // closing of reader stops reading of the rest of EPG and pipelined reader thread
+                try (Reader reader = streamData.getReader()) {
+                    merger.add(source, DataHandler.getEPG(reader, !fullEpg));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> epg : epgs) {
+            getResult(epg);
+        }
+        List<EPG> epgList = merger.getEpgs();
+        if (epgSources.size() > 1) {
+            logger.fine(String.format(MSG_MERGED, epgSources.size(), epgList.size()));
+        }
+        return epgList;
+    }
+
+    /**
+     * Wait for loading result.
+     *
+     * @throws Exception exception thrown on loading
+     */
+    private static <T> T getResult(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+}
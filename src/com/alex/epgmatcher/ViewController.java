@@ -31,7 +31,7 @@ import java.util.*;
  */
 public class ViewController implements Initializable {
 
-    public static final String MAPPING_FILENAME = "mapping.xml";
+    public static final String MAPPING_FILENAME = DataHandler.MAPPING_FILENAME;
     private static final String CONFIG_FILENAME = "config.xml";
     private static final String EXCEPTION_TITLE = "The exception stacktrace was:";
 
@@ -141,7 +141,11 @@ public class ViewController implements Initializable {
         String m3uUrl = m3uField.getText();
         String epgUrl = epgField.getText();
 
-        LoadTask task = new LoadTask(m3uUrl, epgUrl);
+        Config loadConfig = DataHandler.load(new Config(), CONFIG_FILENAME);
+        List<EPGSource> epgSources = new ArrayList<>();
+        epgSources.add(new EPGSource(epgUrl, EPGSource.DEFAULT_PRIORITY));
+        epgSources.addAll(loadConfig.getEpgSources());
+        LoadTask task = new LoadTask(m3uUrl, epgSources, loadConfig.isFullEpg());
         task.setOnRunning(event -> loadController.show(task));
         task.setOnSucceeded(event -> {
             LoadData loadData = task.getValue();
@@ -0,0 +1,27 @@
+package com.alex.epgmatcher.beans;
+
+/**
+ * Class for storing playlist url and output filename of one batch manifest line.
+ */
+public class BatchItem {
+    private final String m3uUrl;
+    private final String outputFilename;
+
+    public BatchItem(String m3uUrl, String outputFilename) {
+        this.m3uUrl = m3uUrl;
+        this.outputFilename = outputFilename;
+    }
+
+    public String getM3uUrl() {
+        return m3uUrl;
+    }
+
+    public String getOutputFilename() {
+        return outputFilename;
+    }
+
+    @Override
+    public String toString() {
+        return m3uUrl + " -> " + outputFilename;
+    }
+}
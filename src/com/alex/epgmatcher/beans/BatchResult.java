@@ -0,0 +1,97 @@
+package com.alex.epgmatcher.beans;
+
+/**
+ * Class for storing result and timing of matching one playlist in batch mode.
+ */
+public class BatchResult {
+    private final BatchItem item;
+    private long loadMillis;
+    private long matchMillis;
+    private long saveMillis;
+    private int channelCount;
+    private int matchedCount;
+    private boolean changed;
+    private String error;
+
+    public BatchResult(BatchItem item) {
+        this.item = item;
+        this.error = "";
+    }
+
+    public BatchItem getItem() {
+        return item;
+    }
+
+    public long getLoadMillis() {
+        return loadMillis;
+    }
+
+    public void setLoadMillis(long loadMillis) {
+        this.loadMillis = loadMillis;
+    }
+
+    public long getMatchMillis() {
+        return matchMillis;
+    }
+
+    public void setMatchMillis(long matchMillis) {
+        this.matchMillis = matchMillis;
+    }
+
+    public long getSaveMillis() {
+        return saveMillis;
+    }
+
+    public void setSaveMillis(long saveMillis) {
+        this.saveMillis = saveMillis;
+    }
+
+    public long getTotalMillis() {
+        return loadMillis + matchMillis + saveMillis;
+    }
+
+    public int getChannelCount() {
+        return channelCount;
+    }
+
+    public void setChannelCount(int channelCount) {
+        this.channelCount = channelCount;
+    }
+
+    /**
+     * @return count of channels with matched EPG
+     */
+    public int getMatchedCount() {
+        return matchedCount;
+    }
+
+    public void setMatchedCount(int matchedCount) {
+        this.matchedCount = matchedCount;
+    }
+
+    /**
+     * @return true if output file was written, false if it was not changed
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    public void setChanged(boolean changed) {
+        this.changed = changed;
+    }
+
+    /**
+     * @return message of error or empty string if playlist was matched successfully
+     */
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error != null ? error : "";
+    }
+
+    public boolean isSuccessful() {
+        return error.isEmpty();
+    }
+}
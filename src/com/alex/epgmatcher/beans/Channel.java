@@ -2,6 +2,7 @@ package com.alex.epgmatcher.beans;
 
 import java.io.Serializable;
 import java.text.NumberFormat;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -10,6 +11,8 @@ import static com.alex.epgmatcher.util.EPGFinder.RATE_THRESHOLD;
 
 /**
  * Class for storing channel data.
+ * Set of find results is created only when results are set or requested for modification,
+ * so channels without results share empty set. Number format of {@link #toString()} is shared by thread.
  * Created by Alex on 17.04.2017.
  */
 public class Channel implements Serializable {
@@ -17,22 +20,31 @@ public class Channel implements Serializable {
     private static final String NEW_LINE = "\r\n";
     private static final int MAX_LINE_LENGTH = 80;
     private static final double MATCH_RATE_THRESHOLD = 0.6;
+    private static final int MAX_FRACTION_DIGITS = 3;
+    private static final SortedSet<FindResult> NO_RESULTS = Collections.emptySortedSet();
+    private static final ThreadLocal<NumberFormat> NUMBER_FORMAT = ThreadLocal.withInitial(() -> {
+        NumberFormat numberFormat = NumberFormat.getNumberInstance();
+        numberFormat.setMaximumFractionDigits(MAX_FRACTION_DIGITS);
+        return numberFormat;
+    });
     /**
-     * Find result with higher rate would be first.
+     * Find result with higher rate would be first, null until results are set.
      */
-    private final SortedSet<FindResult> findResults;
-    private final NumberFormat numberFormat = NumberFormat.getNumberInstance();
+    private SortedSet<FindResult> findResults;
     private String id;
     private String name;
     private String url;
+    private String tvgId;
+    private String tvgName;
+    private String groupTitle;
 
     public Channel() {
-        numberFormat.setMaximumFractionDigits(3);
         id = "";
         name = "";
         url = "";
-        findResults = new TreeSet<>();
-
+        tvgId = "";
+        tvgName = "";
+        groupTitle = "";
     }
 
     public String getId() {
@@ -51,11 +63,45 @@ public class Channel implements Serializable {
         this.name = name != null ? name : "";
     }
 
+    /**
+     * @return value of tvg-id attribute of EXTINF line, equal to id of EPG channel
+     */
+    public String getTvgId() {
+        return tvgId;
+    }
+
+    public void setTvgId(String tvgId) {
+        this.tvgId = tvgId != null ? tvgId : "";
+    }
+
+    /**
+     * @return value of tvg-name attribute of EXTINF line
+     */
+    public String getTvgName() {
+        return tvgName;
+    }
+
+    public void setTvgName(String tvgName) {
+        this.tvgName = tvgName != null ? tvgName : "";
+    }
+
+    /**
+     * @return value of group-title attribute of EXTINF line
+     */
+    public String getGroupTitle() {
+        return groupTitle;
+    }
+
+    public void setGroupTitle(String groupTitle) {
+        this.groupTitle = groupTitle != null ? groupTitle : "";
+    }
+
     public EPG getEpg() {
-        if (findResults.isEmpty() || findResults.first().getRate() < MATCH_RATE_THRESHOLD) {
+        SortedSet<FindResult> results = getResults();
+        if (results.isEmpty() || results.first().getRate() < MATCH_RATE_THRESHOLD) {
             return null;
         } else {
-            return findResults.first().getEpg();
+            return results.first().getEpg();
         }
     }
 
@@ -68,20 +114,42 @@ public class Channel implements Serializable {
     }
 
     public EqualityType getEqualityType() {
-        return EqualityType.getType(findResults);
+        return EqualityType.getType(getResults());
     }
 
     public String getEPGName() {
-        return findResults.isEmpty() ? "" : findResults.first().getEpg().getName();
+        SortedSet<FindResult> results = getResults();
+        return results.isEmpty() ? "" : results.first().getEpg().getName();
     }
 
+    /**
+     * @return modifiable set of find results
+     */
     public SortedSet<FindResult> getFindResults() {
+        if (findResults == null) {
+            findResults = new TreeSet<>();
+        }
         return findResults;
     }
 
+    /**
+     * @return true if channel has find results
+     */
+    public boolean hasFindResults() {
+        return findResults != null && !findResults.isEmpty();
+    }
+
     public void setFindResults(SortedSet<FindResult> results) {
-        findResults.clear();
-        findResults.addAll(results);
+        if (findResults != null) {
+            findResults.clear();
+            findResults.addAll(results);
+        } else if (!results.isEmpty()) {
+            findResults = new TreeSet<>(results);
+        }
+    }
+
+    private SortedSet<FindResult> getResults() {
+        return findResults != null ? findResults : NO_RESULTS;
     }
 
     @Override
@@ -90,7 +158,8 @@ public class Channel implements Serializable {
         stringBuffer.append("Search words: ");
         double rate;
         String[] searchWords;
-        Iterator<FindResult> iterator = findResults.iterator();
+        NumberFormat numberFormat = NUMBER_FORMAT.get();
+        Iterator<FindResult> iterator = getResults().iterator();
         if (iterator.hasNext()) {
             FindResult findResult = iterator.next();
             searchWords = findResult.getSearchWords();
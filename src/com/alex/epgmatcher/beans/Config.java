@@ -1,6 +1,8 @@
 package com.alex.epgmatcher.beans;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Class for storing config data.
@@ -11,11 +13,15 @@ public class Config implements Serializable {
     private String m3uUrl;
     private String epgUrl;
     private String outputFilename;
+    private boolean fullEpg;
+    private List<EPGSource> epgSources;
 
     public Config() {
         m3uUrl = "";
         epgUrl = "";
         outputFilename = "";
+        fullEpg = false;
+        epgSources = new ArrayList<>();
     }
 
     public String getM3uUrl() {
@@ -42,4 +48,27 @@ public class Config implements Serializable {
         this.outputFilename = outputFilename;
     }
 
+    /**
+     * @return true if whole EPG should be read, for EPG with channels interleaved with programmes.
+     */
+    public boolean isFullEpg() {
+        return fullEpg;
+    }
+
+    public void setFullEpg(boolean fullEpg) {
+        this.fullEpg = fullEpg;
+    }
+
+    /**
+     * @return additional EPG sources merged with EPG from {@link Config#getEpgUrl()},
+     * which has priority {@link EPGSource#DEFAULT_PRIORITY}
+     */
+    public List<EPGSource> getEpgSources() {
+        return epgSources;
+    }
+
+    public void setEpgSources(List<EPGSource> epgSources) {
+        this.epgSources = epgSources != null ? epgSources : new ArrayList<>();
+    }
+
 }
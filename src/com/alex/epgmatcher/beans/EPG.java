@@ -1,9 +1,13 @@
 package com.alex.epgmatcher.beans;
 
+import com.alex.epgmatcher.util.EPGFinder;
+
 import java.io.Serializable;
 
 /**
  * Class for storing EPG data.
+ * Upper cased name, normalized name and words of name are computed once on setting of name
+ * and reused for sorting, indexing and merging.
  * Created by Alex on 18.04.2017.
  */
 public class EPG implements Serializable, Comparable<EPG> {
@@ -11,11 +15,14 @@ public class EPG implements Serializable, Comparable<EPG> {
     private String id;
     private String name;
     private String lang;
+    private String sortKey;
+    private String normalizedName;
+    private String[] words;
 
     public EPG() {
         id = "";
-        name = "";
         lang = "";
+        setName("");
     }
 
     public String getId() {
@@ -32,6 +39,30 @@ public class EPG implements Serializable, Comparable<EPG> {
 
     public void setName(String name) {
         this.name = name != null ? name : "";
+        sortKey = this.name.toUpperCase();
+        normalizedName = EPGFinder.removeNonWordChars(sortKey);
+        words = EPGFinder.getWords(sortKey);
+    }
+
+    /**
+     * @return upper cased name
+     */
+    public String getSortKey() {
+        return sortKey;
+    }
+
+    /**
+     * @return upper cased name without chars matched by {@link EPGFinder#NON_WORD_CHAR}
+     */
+    public String getNormalizedName() {
+        return normalizedName;
+    }
+
+    /**
+     * @return words of upper cased name split by {@link EPGFinder#getWords(String)}
+     */
+    public String[] getWords() {
+        return words;
     }
 
     public String getLang() {
@@ -64,6 +95,6 @@ public class EPG implements Serializable, Comparable<EPG> {
 
     @Override
     public int compareTo(EPG o) {
-        return name.toUpperCase().compareTo(o.getName().toUpperCase());
+        return sortKey.compareTo(o.sortKey);
     }
 }
@@ -0,0 +1,54 @@
+package com.alex.epgmatcher.beans;
+
+import java.io.Serializable;
+
+/**
+ * Class for storing EPG source url and its priority.
+ * When sources contain the same channel, channel of source with higher priority is used.
+ */
+public class EPGSource implements Serializable {
+
+    /**
+     * Priority of the main EPG source.
+     */
+    public static final int DEFAULT_PRIORITY = 0;
+    private String url;
+    private int priority;
+
+    public EPGSource() {
+        url = "";
+        priority = DEFAULT_PRIORITY;
+    }
+
+    /**
+     * Constructs new EPGSource.
+     *
+     * @param url      url of EPG guide
+     * @param priority priority of source, higher priority wins
+     */
+    public EPGSource(String url, int priority) {
+        this.url = url;
+        this.priority = priority;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url != null ? url : "";
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    @Override
+    public String toString() {
+        return url;
+    }
+}
@@ -1,6 +1,8 @@
 package com.alex.epgmatcher.beans;
 
 import com.alex.epgmatcher.util.CountingInputStream;
+import com.alex.epgmatcher.util.PipelinedInputStream;
+import com.alex.epgmatcher.util.ProgressListener;
 
 import java.io.*;
 import java.net.URLConnection;
@@ -8,71 +10,129 @@ import java.util.zip.GZIPInputStream;
 
 /**
  * Class providing {@link InputStream} from {@link URLConnection} wrapped to {@link CountingInputStream},
- * count of bytes read from InputStream and total size in bytes of content
+ * count of bytes read from InputStream and total size in bytes of content.
+ * Network reading and decompression are done in separate thread by {@link PipelinedInputStream}.
  * Created by Alex on 21.04.2017.
  */
 public class InputStreamReaderData {
     private final CountingInputStream countingInputStream;
-    private final Reader reader;
-    private final int size;
-    private static final String GZ = ".gz";
+    private final InputStream inputStream;
+    private Reader reader;
+    private final long size;
+    private static final int GZIP_MAGIC_LENGTH = 2;
 
     /**
      * Constructs new InputStreamReaderData.
-     * If content have ".gz" extension returning InputStream is wrapped to {@link GZIPInputStream}
+     * If content starts with gzip magic bytes returning InputStream is wrapped to {@link GZIPInputStream}
      *
      * @param connection URLConnection for retrieving InputStream
      * @throws IOException if an I/O error has occurred
      */
     public InputStreamReaderData(URLConnection connection) throws IOException {
-        this.size = connection.getContentLength();
-        this.countingInputStream = new CountingInputStream(connection.getInputStream());
-        String file = connection.getURL().getFile();
-        InputStream inputStream;
-        if (file != null && file.toLowerCase().endsWith(GZ)) {
-            inputStream = new GZIPInputStream(countingInputStream);
+        this(connection.getContentLengthLong(), connection.getInputStream());
+    }
+
+    /**
+     * Constructs new InputStreamReaderData.
+     * If content starts with gzip magic bytes returning InputStream is wrapped to {@link GZIPInputStream}
+     *
+     * @param size        size in bytes of content or -1 if it is unknown
+     * @param inputStream stream of content
+     * @throws IOException if an I/O error has occurred
+     */
+    public InputStreamReaderData(long size, InputStream inputStream) throws IOException {
+        this.size = size;
+        this.countingInputStream = new CountingInputStream(inputStream, size);
+        PushbackInputStream pushbackStream = new PushbackInputStream(countingInputStream, GZIP_MAGIC_LENGTH);
+        InputStream stream;
+        if (isGzip(pushbackStream)) {
+            stream = new GZIPInputStream(pushbackStream);
         } else {
-            inputStream = countingInputStream;
+            stream = pushbackStream;
         }
 
-        reader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
-        skipBOM(reader);
+        this.inputStream = new PipelinedInputStream(stream, countingInputStream);
+    }
 
+    /**
+     * Check first bytes of stream for gzip magic number and push them back.
+     */
+    private static boolean isGzip(PushbackInputStream stream) throws IOException {
+        byte[] magic = new byte[GZIP_MAGIC_LENGTH];
+        int length = 0;
+        while (length < magic.length) {
+            int count = stream.read(magic, length, magic.length - length);
+            if (count < 0) break;
+            length += count;
+        }
+        stream.unread(magic, 0, length);
+        return length == magic.length && (magic[0] & 0xff) == (GZIPInputStream.GZIP_MAGIC & 0xff)
+                && (magic[1] & 0xff) == (GZIPInputStream.GZIP_MAGIC >> 8);
     }
 
     private void skipBOM(Reader reader) throws IOException {
-        if (reader.ready()) {
-            reader.mark(1);
-            char[] possibleBOM = new char[1];
-            reader.read(possibleBOM);
-            if (possibleBOM[0] != '\ufeff') {
-                reader.reset();
-            }
+        // content is read by another thread, so it may be not ready yet
+        reader.mark(1);
+        if (reader.read() != '\ufeff') {
+            reader.reset();
         }
     }
 
 
     /**
-     * @return {@link InputStream} form {@link URLConnection}
+     * Content should be read either by this reader or by {@link InputStreamReaderData#getInputStream()}.
+     *
+     * @return UTF-8 reader of content form {@link URLConnection} without BOM
+     * @throws IOException if an I/O error has occurred
      */
-    public Reader getReader() {
+    public Reader getReader() throws IOException {
+        if (reader == null) {
+            reader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
+            skipBOM(reader);
+        }
         return reader;
     }
 
+    /**
+     * Content should be read either by this stream or by {@link InputStreamReaderData#getReader()}.
+     *
+     * @return decompressed {@link InputStream} of content form {@link URLConnection}
+     */
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+
     /**
      * @return count of bytes read from connections InputStream
      */
-    public int getCount() {
+    public long getCount() {
         return countingInputStream.getCount();
     }
 
 
     /**
-     * @return size in bytes of URLConnection content
+     * @return size in bytes of URLConnection content or -1 if it is unknown
      */
-    public int getSize() {
+    public long getSize() {
         return size;
     }
 
+    /**
+     * Set listener of reading progress of connections InputStream.
+     *
+     * @param source   name of source passed to listener
+     * @param listener listener of progress or null
+     */
+    public void setProgressListener(String source, ProgressListener listener) {
+        countingInputStream.setProgressListener(source, listener);
+    }
+
+    /**
+     * @return current progress of reading connections InputStream
+     */
+    public Progress getProgress() {
+        return countingInputStream.getProgress();
+    }
+
 
 }
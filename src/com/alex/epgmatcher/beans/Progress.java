@@ -0,0 +1,80 @@
+package com.alex.epgmatcher.beans;
+
+import java.util.Locale;
+
+/**
+ * Class for storing progress of reading a source.
+ */
+public class Progress {
+    private static final double MEGABYTE = 1024 * 1024;
+    private final String source;
+    private final long bytes;
+    private final long size;
+    private final long bytesPerSecond;
+    private final boolean finished;
+
+    /**
+     * Constructs new Progress.
+     *
+     * @param source         name of source
+     * @param bytes          count of read bytes
+     * @param size           size of source in bytes or -1 if it is unknown
+     * @param bytesPerSecond average throughput
+     * @param finished       true if reading of source is finished
+     */
+    public Progress(String source, long bytes, long size, long bytesPerSecond, boolean finished) {
+        this.source = source;
+        this.bytes = bytes;
+        this.size = size;
+        this.bytesPerSecond = bytesPerSecond;
+        this.finished = finished;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return size of source in bytes or -1 if it is unknown
+     */
+    public long getSize() {
+        return size;
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @return estimated time in seconds to finish reading or -1 if it is unknown
+     */
+    public long getRemainingSeconds() {
+        if (finished) return 0;
+        if (size < 0 || bytesPerSecond <= 0) return -1;
+        return Math.max(size - bytes, 0) / bytesPerSecond;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        result.append(source).append(": ").append(String.format(Locale.ROOT, "%.1f", bytes / MEGABYTE));
+        if (size >= 0) {
+            result.append(String.format(Locale.ROOT, " of %.1f", size / MEGABYTE));
+        }
+        result.append(String.format(Locale.ROOT, " MB, %.2f MB/s", bytesPerSecond / MEGABYTE));
+        if (finished) {
+            result.append(", done");
+        } else if (getRemainingSeconds() >= 0) {
+            result.append(", ETA ").append(getRemainingSeconds()).append(" s");
+        }
+        return result.toString();
+    }
+}
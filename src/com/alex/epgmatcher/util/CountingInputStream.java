@@ -1,60 +1,129 @@
 package com.alex.epgmatcher.util;
 
+import com.alex.epgmatcher.beans.Progress;
+
 import java.io.IOException;
 import java.io.InputStream;
 
 /**
  * Class for wrapping {@link InputStream} and counting bytes read from stream.
+ * Progress of reading is reported to {@link ProgressListener} not more often than {@link #NOTIFY_INTERVAL}
+ * and once on the end or close of stream.
+ * Time spent in reading of wrapped stream is measured if {@link RunMetrics} are collected.
  * Created by Alex on 21.04.2017.
  */
 public class CountingInputStream extends InputStream {
 
+    /**
+     * Minimal interval in milliseconds between progress notifications.
+     */
+    public static final long NOTIFY_INTERVAL = 250;
+    private static final long NANOS_IN_MILLI = 1000000;
+    private static final long NANOS_IN_SECOND = 1000000000;
 
-    private int count;
+    private volatile long count;
 
     private final InputStream inputStream;
+    private final long size;
+    private final long startTime;
+    private final boolean timed;
+    private long readNanos;
+    private long notifyTime;
+    private volatile boolean finished;
+    private volatile String source;
+    private volatile ProgressListener listener;
 
     /**
      * Constructs new CountingInputStream
      * @param inputStream stream to be wrapped in this instance.
      */
     public CountingInputStream(InputStream inputStream) {
+        this(inputStream, -1);
+    }
+
+    /**
+     * Constructs new CountingInputStream
+     * @param inputStream stream to be wrapped in this instance.
+     * @param size        size in bytes of stream or -1 if it is unknown
+     */
+    public CountingInputStream(InputStream inputStream, long size) {
         this.count = 0;
         this.inputStream = inputStream;
+        this.size = size;
+        this.startTime = System.nanoTime();
+        this.notifyTime = startTime;
+        this.timed = RunMetrics.isEnabled();
     }
 
     /**
      * @return count of bytes read from wrapped {@link InputStream}
      */
-    public int getCount() {
+    public long getCount() {
         return count;
     }
 
+    /**
+     * @return nanoseconds spent in reading of wrapped {@link InputStream} or 0 if time isn't measured
+     */
+    public long getReadNanos() {
+        return readNanos;
+    }
+
+    /**
+     * Set listener of reading progress.
+     * If stream is already finished listener is notified immediately.
+     *
+     * @param source   name of source passed to listener
+     * @param listener listener of progress or null
+     */
+    public void setProgressListener(String source, ProgressListener listener) {
+        this.source = source;
+        this.listener = listener;
+        if (finished && listener != null) {
+            listener.onProgress(getProgress());
+        }
+    }
+
+    /**
+     * @return current progress of reading
+     */
+    public Progress getProgress() {
+        long elapsed = System.nanoTime() - startTime;
+        long bytesPerSecond = elapsed > 0 ? (long) (count * (double) NANOS_IN_SECOND / elapsed) : 0;
+        return new Progress(source, count, size, bytesPerSecond, finished);
+    }
+
     @Override
     public int read() throws IOException {
+        long start = timed ? System.nanoTime() : 0;
         int found = inputStream.read();
-        this.count += (found >= 0) ? 1 : 0;
+        if (timed) {
+            readNanos += System.nanoTime() - start;
+        }
+        add((found >= 0) ? 1 : -1);
         return found;
     }
 
     @Override
     public int read(byte[] b) throws IOException {
-        int found = inputStream.read(b);
-        this.count += (found >= 0) ? found : 0;
-        return found;
+        return read(b, 0, b.length);
     }
 
     @Override
     public int read(byte[] b, int off, int len) throws IOException {
+        long start = timed ? System.nanoTime() : 0;
         int found = inputStream.read(b, off, len);
-        this.count += (found >= 0) ? found : 0;
+        if (timed) {
+            readNanos += System.nanoTime() - start;
+        }
+        add(found);
         return found;
     }
 
     @Override
     public long skip(long n) throws IOException {
         final long skip = inputStream.skip(n);
-        this.count += skip;
+        add(skip);
         return skip;
     }
 
@@ -65,7 +134,11 @@ public class CountingInputStream extends InputStream {
 
     @Override
     public void close() throws IOException {
-        inputStream.close();
+        try {
+            inputStream.close();
+        } finally {
+            finish();
+        }
     }
 
     @Override
@@ -82,4 +155,33 @@ public class CountingInputStream extends InputStream {
     public boolean markSupported() {
         return inputStream.markSupported();
     }
+
+    /**
+     * Count read bytes and notify listener if notify interval is elapsed.
+     *
+     * @param found count of read bytes or -1 on end of stream
+     */
+    private void add(long found) {
+        if (found < 0) {
+            finish();
+            return;
+        }
+        count += found;
+        ProgressListener progressListener = listener;
+        if (progressListener == null) return;
+        long now = System.nanoTime();
+        if (now - notifyTime >= NOTIFY_INTERVAL * NANOS_IN_MILLI) {
+            notifyTime = now;
+            progressListener.onProgress(getProgress());
+        }
+    }
+
+    private void finish() {
+        if (finished) return;
+        finished = true;
+        ProgressListener progressListener = listener;
+        if (progressListener != null) {
+            progressListener.onProgress(getProgress());
+        }
+    }
 }
@@ -12,10 +12,21 @@ import java.beans.XMLDecoder;
 import java.beans.XMLEncoder;
 import java.io.*;
 import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.logging.Logger;
 
 /**
@@ -33,20 +44,30 @@ public final class DataHandler {
     private static final String QUOTE = "\"";
     private static final String DOWNLOADING_EPG = "Downloading EPG...";
     private static final String EPG_SUCCESSFULLY_DOWNLOADED = "EPG successfully downloaded.";
+    private static final String EPG_CHANNELS_END = "End of EPG channels, programmes are skipped.";
     private static final String DOWNLOADING_CHANNELS = "Downloading channels...";
     private static final String CHANNELS_SUCCESSFULLY_DOWNLOADED = "Channels successfully downloaded.";
     private static final String CREATING_M3U = "Creating m3u...";
     private static final String M3U_SUCCESSFULLY_SAVED = "M3U successfully saved.";
+    private static final String M3U_NOT_CHANGED = "M3U isn't changed.";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final int BUFFER_SIZE = 64 * 1024;
 
     private static final String ERROR_CONFIG_READ = "Error on load config: ";
+    /**
+     * Name of file with previously matched EPG to channels.
+     */
+    public static final String MAPPING_FILENAME = "mapping.xml";
     private final static Logger logger = Logger.getGlobal();
-    private final static Proxy proxy = getProxy();
+    private static volatile SourceCache sourceCache;
 
     private DataHandler() {
     }
 
     /**
      * Retrieve EPG list from given URL.
+     * Reading is stopped after channels section, reader should be closed by caller.
      *
      * @param reader reader for retrieving data.
      * @return list of {@link EPG}
@@ -54,36 +75,112 @@ public final class DataHandler {
      * @throws SAXException Any SAX exception, possibly wrapping another exception.
      */
     public static List<EPG> getEPG(Reader reader) throws IOException, SAXException {
+        return getEPG(reader, true);
+    }
+
+    /**
+     * Retrieve EPG list from given URL.
+     *
+     * @param reader            reader for retrieving data.
+     * @param stopAfterChannels stop reading after channels section,
+     *                          false for EPG with channels interleaved with programmes.
+     *                          Reader isn't closed and should be closed by caller.
+     * @return list of {@link EPG}
+     * @throws IOException  Any I/O exception of some sort has occurred.
+     * @throws SAXException Any SAX exception, possibly wrapping another exception.
+     */
+    public static List<EPG> getEPG(Reader reader, boolean stopAfterChannels) throws IOException, SAXException {
+        long start = System.nanoTime();
+        long startBytes = RunMetrics.getStartBytes();
         List<EPG> epgNames;
         logger.finest(DOWNLOADING_EPG);
-        XMLReader xmlReader = XMLReaderFactory.createXMLReader();
-        xmlReader.setFeature(EXTERNAL_DTD, false);
-        InputSource source = new InputSource(reader);
-        EPGXmlHandler handler = new EPGXmlHandler();
-        xmlReader.setContentHandler(handler);
-        xmlReader.setFeature(SAX_VALIDATION, false);
-        xmlReader.setFeature(APACHE_VALIDATION, false);
-        xmlReader.parse(source);
-        epgNames = handler.getResults();
+        try {
+            XMLReader xmlReader = XMLReaderFactory.createXMLReader();
+            xmlReader.setFeature(EXTERNAL_DTD, false);
+            InputSource source = new InputSource(reader);
+            EPGXmlHandler handler = new EPGXmlHandler(stopAfterChannels);
+            xmlReader.setContentHandler(handler);
+            xmlReader.setFeature(SAX_VALIDATION, false);
+            xmlReader.setFeature(APACHE_VALIDATION, false);
+            try {
+                xmlReader.parse(source);
+            } catch (EPGXmlHandler.ChannelsEndException e) {
+                logger.finest(EPG_CHANNELS_END);
+            }
+            epgNames = handler.getResults();
+        } finally {
+            RunMetrics.recordSince(RunMetrics.Phase.PARSE, start, startBytes);
+        }
         logger.finest(EPG_SUCCESSFULLY_DOWNLOADED);
         return epgNames;
     }
 
 
+    /**
+     * Set cache of downloaded sources.
+     *
+     * @param cache cache for {@link DataHandler#getInputStreamData(String)} or null for disabling cache
+     */
+    public static void setSourceCache(SourceCache cache) {
+        sourceCache = cache;
+    }
+
+    /**
+     * Open connection to given URL.
+     * If {@link SourceCache} is set, not modified content is loaded from cache.
+     *
+     * @param uri URL of source
+     * @return data of source
+     * @throws IOException Any I/O exception of some sort has occurred.
+     */
     public static InputStreamReaderData getInputStreamData(String uri) throws IOException {
-        URL url = new URL(uri);
-        URLConnection connection;
-        if (proxy != null) {
-            connection = url.openConnection(proxy);
-        } else {
-            connection = url.openConnection();
+        long start = System.nanoTime();
+        long startBytes = RunMetrics.getStartBytes();
+        try {
+            URL url = new URL(uri);
+            URLConnection connection;
+            // system proxy is detected only on the first network connection
+            Proxy proxy = isNetworkProtocol(url) ? ProxyHolder.PROXY : null;
+            if (proxy != null) {
+                connection = url.openConnection(proxy);
+            } else {
+                connection = url.openConnection();
+            }
+            SourceCache cache = sourceCache;
+            if (cache != null) {
+                return cache.open(connection);
+            }
+            connection.connect();
+            return new InputStreamReaderData(connection);
+        } finally {
+            RunMetrics.recordSince(RunMetrics.Phase.CONNECT, start, startBytes);
+        }
+    }
+
+    /**
+     * Retrieve channel list from given stream by {@link M3UParser}.
+     *
+     * @param inputStream UTF-8 stream for retrieving data.
+     * @return list of {@link Channel}
+     * @throws IOException Any I/O exception of some sort has occurred.
+     */
+    public static List<Channel> getChannels(InputStream inputStream) throws IOException {
+        List<Channel> channels = new ArrayList<>();
+        logger.finest(DOWNLOADING_CHANNELS);
+        long start = System.nanoTime();
+        long startBytes = RunMetrics.getStartBytes();
+        try (InputStream is = inputStream) {
+            new M3UParser(is).parse(channels::add);
+        } finally {
+            RunMetrics.recordSince(RunMetrics.Phase.PARSE, start, startBytes);
         }
-        connection.connect();
-        return new InputStreamReaderData(connection);
+        logger.finest(CHANNELS_SUCCESSFULLY_DOWNLOADED);
+        return channels;
     }
 
     /**
      * Retrieve channel list from given URL.
+     * {@link DataHandler#getChannels(InputStream)} is faster for large playlists.
      *
      * @param reader reader for retrieving data.
      * @return list of {@link Channel}
@@ -92,16 +189,19 @@ public final class DataHandler {
         List<Channel> channels = new ArrayList<>();
         logger.finest(DOWNLOADING_CHANNELS);
 
+        long start = System.nanoTime();
+        long startBytes = RunMetrics.getStartBytes();
         try (Scanner scanner = new Scanner(reader)) {
             while (scanner.hasNext()) {
                 String nextLine = scanner.nextLine();
                 if (nextLine.startsWith(EXTINF)) {
                     nextLine = nextLine.substring(EXTINF.length(), nextLine.length());
                     Channel channel = new Channel();
-                    String[] split = nextLine.split(",", 2);
-                    if (split.length != 2) continue;
-                    channel.setId(split[0]);
-                    channel.setName(split[1]);
+                    int separator = M3UParser.indexOfSeparator(nextLine);
+                    if (separator < 0) continue;
+                    channel.setId(nextLine.substring(0, separator));
+                    channel.setName(nextLine.substring(separator + 1));
+                    M3UParser.setAttributes(channel, channel.getId());
 
                     if (scanner.hasNextLine()) {
                         channel.setUrl(scanner.nextLine());
@@ -110,11 +210,17 @@ public final class DataHandler {
                 }
             }
             scanner.close();
+        } finally {
+            RunMetrics.recordSince(RunMetrics.Phase.PARSE, start, startBytes);
         }
         logger.finest(CHANNELS_SUCCESSFULLY_DOWNLOADED);
         return channels;
     }
 
+    private static boolean isNetworkProtocol(URL url) {
+        return url.getProtocol().startsWith("http") || url.getProtocol().equals("ftp");
+    }
+
     private static Proxy getProxy() {
         try {
             System.setProperty("java.net.useSystemProxies", "true");
@@ -132,45 +238,122 @@ public final class DataHandler {
     }
 
     /**
-     * Create M3U text data from given argument.
+     * Write M3U text data of given argument.
      *
      * @param channels list of {@link Channel}
-     * @return string containing M3U file data.
+     * @param writer   writer for M3U data
+     * @throws IOException Any I/O exception of some sort has occurred.
      */
-    private static String createM3U(List<Channel> channels) {
-        StringBuilder result = new StringBuilder();
-        result.append(EXTM3U + NEW_LINE);
+    public static void writeM3U(List<Channel> channels, Writer writer) throws IOException {
+        writer.write(EXTM3U + NEW_LINE);
         for (Channel channel : channels) {
-            result.append(EXTINF);
-            result.append(channel.getId());
-            if (!channel.getEPGName().isEmpty()) {
-                result.append(TVG_NAME).append(channel.getEPGName()).append(QUOTE);
+            writer.write(EXTINF);
+            writer.write(channel.getId());
+            String epgName = channel.getEPGName();
+            if (!epgName.isEmpty()) {
+                writer.write(TVG_NAME);
+                writer.write(epgName);
+                writer.write(QUOTE);
             }
-            result.append(",").append(channel.getName());
-
-            result.append(NEW_LINE);
-            result.append(channel.getUrl()).append(NEW_LINE);
+            writer.write(",");
+            writer.write(channel.getName());
+            writer.write(NEW_LINE);
+            writer.write(channel.getUrl());
+            writer.write(NEW_LINE);
         }
-        return result.toString();
     }
 
     /**
-     * save channel data to EXTINF M3U file
+     * save channel data to EXTINF M3U file.
+     * Data is written to temporary file which replaces given file atomically,
+     * file isn't rewritten if its content is the same.
      *
      * @param channels list of {@link Channel}
      * @param file     name of m3u file
+     * @return true if file was written, false if it has the same content
      * @throws IOException Any I/O exception of some sort has occurred.
      */
-    public static void saveM3U(List<Channel> channels, File file) throws IOException {
+    public static boolean saveM3U(List<Channel> channels, File file) throws IOException {
+        long start = System.nanoTime();
+        long startBytes = RunMetrics.getStartBytes();
         logger.finest(CREATING_M3U);
-        try (FileOutputStream fos = new FileOutputStream(file);
-             OutputStreamWriter osw = new OutputStreamWriter(fos, "UTF-8");
-             BufferedWriter writer = new BufferedWriter(osw)) {
-            writer.write(createM3U(channels));
-            writer.flush();
-            writer.close();
+        File target = file.getAbsoluteFile();
+        File temp = createTempFile(target);
+        try {
+            MessageDigest digest = getDigest();
+            try (OutputStream os = new DigestOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temp)), digest);
+                 Writer writer = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8))) {
+                writeM3U(channels, writer);
+            }
+            if (target.isFile() && target.length() == temp.length()
+                    && MessageDigest.isEqual(digest.digest(), getDigest(target))) {
+                logger.finest(M3U_NOT_CHANGED);
+                return false;
+            }
+            try {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+            RunMetrics.recordSince(RunMetrics.Phase.WRITE, start, startBytes);
         }
         logger.finest(M3U_SUCCESSFULLY_SAVED);
+        return true;
+    }
+
+    /**
+     * Create temporary file in directory of given target.
+     * Unlike {@link File#createTempFile(String, String, File)}, which creates owner only file,
+     * temporary file gets default permissions of new file or permissions of existing target,
+     * because it replaces target.
+     */
+    private static File createTempFile(File target) throws IOException {
+        Path directory = target.getParentFile().toPath();
+        Path temp;
+        while (true) {
+            temp = directory.resolve("." + target.getName() + "."
+                    + Long.toHexString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE) + TEMP_SUFFIX);
+            try {
+                Files.createFile(temp);
+                break;
+            } catch (FileAlreadyExistsException ignored) {
+            }
+        }
+        Path targetPath = target.toPath();
+        if (Files.isRegularFile(targetPath)
+                && Files.getFileAttributeView(temp, PosixFileAttributeView.class) != null) {
+            try {
+                Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(targetPath));
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+        }
+        return temp.toFile();
+    }
+
+    private static MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] getDigest(File file) throws IOException {
+        MessageDigest digest = getDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream is = new FileInputStream(file)) {
+            int count;
+            while ((count = is.read(buffer)) >= 0) {
+                digest.update(buffer, 0, count);
+            }
+        }
+        return digest.digest();
     }
 
     /**
@@ -213,4 +396,11 @@ public final class DataHandler {
             xmlEncoder.close();
         }
     }
+
+    /**
+     * Holder of system proxy, which is detected on the first access.
+     */
+    private static final class ProxyHolder {
+        private static final Proxy PROXY = getProxy();
+    }
 }
@@ -19,52 +19,98 @@ public class EPGFinder {
     private static final int MIN_WORD_LENGTH = 2;
     private static final double REPLACE_BY_SYNONYM_FACTOR = 0.9;
     private static final double WORD_ORDER_FACTOR = 0.2;
+    /**
+     * Margin for rounding errors of rate upper bound.
+     */
+    private static final double BOUND_EPSILON = 1e-9;
     private final Map<String, String> mapping;
-    private final Map<String, String[]> epgWordsMap;
-    private final Map<String, EPG> epgMap;
-
-    private final Synonyms synonyms;
+    private final EPGIndex index;
+    private final TokenDictionary dictionary;
+    /**
+     * Per-thread flags of already matched EPG words.
+     */
+    private final ThreadLocal<boolean[]> matchedWords;
 
 
     /**
      * Constructs new {@link EPGFinder} with given arguments.
      *
-     * @param epgWordsMap map of EPG name to {@link EPG} name split by words
-     * @param epgMap      map of EPG name to {@link EPG} object
-     * @param mapping     previous mapping of EPGs to channels.
+     * @param index   index of EPG names
+     * @param mapping previous mapping of EPGs to channels.
      */
-    public EPGFinder(Map<String, EPG> epgMap, Map<String, String[]> epgWordsMap, Map<String, String> mapping) {
-        this.epgMap = epgMap;
-        this.epgWordsMap = epgWordsMap;
+    public EPGFinder(EPGIndex index, Map<String, String> mapping) {
+        this.index = index;
         this.mapping = mapping != null ? mapping : new HashMap<>();
-        synonyms = new Synonyms();
+        dictionary = index.getDictionary();
+        matchedWords = ThreadLocal.withInitial(() -> new boolean[index.getMaxWords()]);
     }
 
     /**
-     * Split given argument by words by Regex {@link EPGFinder#NON_WORD_CHAR}
+     * Split given argument by words separated by chars matched by {@link EPGFinder#NON_WORD_CHAR}.
+     * Words shorter than {@link EPGFinder#MIN_WORD_LENGTH} are joined with the next word.
      *
      * @param phrase phrase to split.
      * @return splitted phrase
      */
     public static String[] getWords(String phrase) {
-        String[] split = phrase.split(NON_WORD_CHAR);
         StringBuilder prev = new StringBuilder();
         List<String> list = new ArrayList<>();
-        for (String str : split) {
-            if (str.length() < MIN_WORD_LENGTH) {
-                prev.append(str);
+        int length = phrase.length();
+        int index = 0;
+        while (index < length) {
+            while (index < length && !isWordChar(phrase.charAt(index))) {
+                index++;
+            }
+            int start = index;
+            while (index < length && isWordChar(phrase.charAt(index))) {
+                index++;
+            }
+            if (index == start) break;
+            if (index - start < MIN_WORD_LENGTH) {
+                prev.append(phrase, start, index);
             } else {
                 if (prev.length() > 0) {
                     list.add(prev.toString());
                 }
                 prev.setLength(0);
-                prev.append(str);
+                prev.append(phrase, start, index);
             }
         }
         if (prev.length() > 0) {
             list.add(prev.toString());
         }
-        return list.toArray(new String[]{});
+        return list.toArray(new String[list.size()]);
+    }
+
+    /**
+     * Remove chars matched by {@link EPGFinder#NON_WORD_CHAR} from given phrase.
+     *
+     * @param phrase upper cased phrase
+     * @return phrase without non word chars
+     */
+    public static String removeNonWordChars(String phrase) {
+        int length = phrase.length();
+        int index = 0;
+        while (index < length && isWordChar(phrase.charAt(index))) {
+            index++;
+        }
+        if (index == length) return phrase;
+        StringBuilder result = new StringBuilder(length);
+        result.append(phrase, 0, index);
+        for (; index < length; index++) {
+            char c = phrase.charAt(index);
+            if (isWordChar(c)) {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * @return true if char isn't matched by {@link EPGFinder#NON_WORD_CHAR}
+     */
+    private static boolean isWordChar(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || (c >= 'А' && c <= 'Я');
     }
 
     /**
@@ -74,64 +120,150 @@ public class EPGFinder {
      * @return {@link FindResult} if {@link EPG} was founded or null otherwise
      */
     public SortedSet<FindResult> findEPG(String channelName) {
+        return findEPG(channelName, null);
+    }
+
+    /**
+     * find {@link EPG} by given arguments.
+     * EPG is searched by previous mapping, then by tvg-id equal to EPG id, then by name and
+     * by words of name at last.
+     * tvg-id overrides the name: EPG with the same id is full match even if its name differs from channel name.
+     * Counters of the search are added to {@link RunMetrics} if they are collected.
+     *
+     * @param channelName name of channel for searching.
+     * @param tvgId       tvg-id of channel or null.
+     * @return {@link FindResult} if {@link EPG} was founded or null otherwise
+     */
+    public SortedSet<FindResult> findEPG(String channelName, String tvgId) {
+        return findEPG(channelName, tvgId, (SearchCounters) null);
+    }
+
+    /**
+     * find {@link EPG} by given arguments and add candidate counters of the search to given counters.
+     *
+     * @param channelName name of channel for searching.
+     * @param tvgId       tvg-id of channel or null.
+     * @param counters    counters of matching run or null
+     * @return {@link FindResult} if {@link EPG} was founded or null otherwise
+     * @see EPGFinder#findEPG(String, String)
+     */
+    public SortedSet<FindResult> findEPG(String channelName, String tvgId, SearchCounters counters) {
+        FindStats stats = RunMetrics.isEnabled() || counters != null ? new FindStats(channelName) : null;
+        SortedSet<FindResult> results = findEPG(channelName, tvgId, stats);
+        if (stats != null) {
+            RunMetrics.add(stats);
+            if (counters != null) {
+                counters.add(stats);
+            }
+        }
+        return results;
+    }
+
+    private SortedSet<FindResult> findEPG(String channelName, String tvgId, FindStats stats) {
         SortedSet<FindResult> results;
 
         String key = mapping.get(channelName);
         if (key != null) {
-            results = findByChannelName(key.toUpperCase().replaceAll(NON_WORD_CHAR, ""));
+            results = findByChannelName(removeNonWordChars(key.toUpperCase()));
             if (!results.isEmpty()) {
+                if (stats != null) stats.path = FindStats.Path.MAPPING;
                 return results;
             }
         }
 
-        key = channelName.toUpperCase().replaceAll(NON_WORD_CHAR, "");
+        if (tvgId != null && !tvgId.isEmpty()) {
+            results = findById(tvgId);
+            if (!results.isEmpty()) {
+                if (stats != null) stats.path = FindStats.Path.ID;
+                return results;
+            }
+        }
+
+        String upperName = channelName.toUpperCase();
+        key = removeNonWordChars(upperName);
         results = findByChannelName(key);
         if (!results.isEmpty()) {
+            if (stats != null) stats.path = FindStats.Path.NAME;
             return results;
         }
 
-
-        return findByWords(channelName.toUpperCase());
+        if (stats != null) stats.path = FindStats.Path.WORDS;
+        return findByWords(upperName, key, stats);
     }
 
     /**
      * Split given argument by words and find {@link EPG}.
+     * Only EPGs sharing a word prefix with the channel are rated, other EPGs can't reach
+     * {@link EPGFinder#RATE_THRESHOLD}.
      *
      * @param channelName channel's name for EPG finding.
+     * @param joinedName  channel's name without non word chars.
+     * @param stats       counters of the search or null if metrics are disabled.
      * @return {@link FindResult} if {@link EPG} was founded or null otherwise
      */
-    private SortedSet<FindResult> findByWords(String channelName) {
-        Map<String, FindResult> resultMap = new HashMap<>();
+    private SortedSet<FindResult> findByWords(String channelName, String joinedName, FindStats stats) {
+        TopResults results = new TopResults(index, MAX_RESULTS);
 
-        String[] channelJoinedWords = new String[]{channelName.replaceAll(NON_WORD_CHAR, "")};
         String[] words = getWords(channelName);
-        for (Map.Entry<String, String[]> entry : epgWordsMap.entrySet()) {
-            EPG epg = epgMap.get(entry.getKey());
+        SearchWords channelWords = new SearchWords(dictionary.getWords(words));
+        SearchWords channelJoinedWords = new SearchWords(
+                dictionary.getWords(new String[]{joinedName}));
+        boolean[] matched = matchedWords.get();
+        BitSet candidates = index.getCandidates(channelWords.words, channelJoinedWords.words);
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            double cutoff = results.isFull() ? results.getMinRate() : RATE_THRESHOLD;
+            int[] joinedTokens = index.getJoinedTokens(i);
+            int[] wordTokens = index.getWordTokens(i);
 
             // search by joined words without delimeters
-            String[] epgJoindeWords = new String[]{entry.getKey().replaceAll(NON_WORD_CHAR, "")};
-            double rate = getRate(channelJoinedWords, epgJoindeWords);
-            addRate(resultMap, words, epg, rate);
+            boolean joinedPruned = isPruned(channelJoinedWords, joinedTokens, cutoff);
+            double joinedRate = joinedPruned ? Double.NEGATIVE_INFINITY
+                    : getRate(channelJoinedWords, joinedTokens, matched, cutoff);
+            double bestRate = joinedRate >= RATE_THRESHOLD ? joinedRate : Double.NEGATIVE_INFINITY;
 
             // search by words
-            rate = getRate(words, entry.getValue());
-            addRate(resultMap, words, epg, rate);
+            boolean wordsPruned = isPruned(channelWords, wordTokens, cutoff);
+            double rate = wordsPruned ? Double.NEGATIVE_INFINITY
+                    : getRate(channelWords, wordTokens, matched, cutoff);
+            if (rate >= RATE_THRESHOLD && rate > bestRate) {
+                bestRate = rate;
+            }
 
+            if (stats != null) {
+                // candidate is rated by both passes, so it's counted once by the best outcome
+                stats.candidates++;
+                if (joinedPruned && wordsPruned) {
+                    stats.pruned++;
+                } else if (joinedRate > Double.NEGATIVE_INFINITY || rate > Double.NEGATIVE_INFINITY) {
+                    stats.scored++;
+                } else {
+                    stats.aborted++;
+                }
+            }
+
+            if (bestRate >= RATE_THRESHOLD) {
+                results.add(bestRate, i);
+            }
         }
-        List<FindResult> findResults = new ArrayList<>(resultMap.values());
-        Collections.sort(findResults);
-        return new TreeSet<>(findResults.subList(0, Math.min(MAX_RESULTS, findResults.size())));
+        return results.getResults(words);
     }
 
-    private void addRate(Map<String, FindResult> results, String[] words, EPG epg, double rate) {
-        if (rate >= RATE_THRESHOLD) {
-            FindResult result = new FindResult(epg, rate);
-            result.setSearchWords(words);
-            FindResult prev = results.get(epg.getName());
-            if (prev == null || prev.getRate() < result.getRate()) {
-                results.put(epg.getName(), result);
-            }
+    /**
+     * find {@link EPG} by id.
+     * Name of channel isn't compared, playlist ids refer to EPG channels, so renamed channel keeps its EPG.
+     *
+     * @param id id of EPG
+     * @return {@link FindResult} if {@link EPG} was founded or null otherwise
+     */
+    private SortedSet<FindResult> findById(String id) {
+        SortedSet<FindResult> results = new TreeSet<>();
+        EPG epg = index.getById(id);
+        if (epg != null) {
+            FindResult findResult = new FindResult(epg, 1.0);
+            findResult.setSearchWords(new String[]{id});
+            results.add(findResult);
         }
+        return results;
     }
 
     /**
@@ -142,7 +274,7 @@ public class EPGFinder {
      */
     private SortedSet<FindResult> findByChannelName(String phrase) {
         SortedSet<FindResult> results = new TreeSet<>();
-        EPG epg = epgMap.get(phrase);
+        EPG epg = index.get(phrase);
         if (epg != null) {
             FindResult findResult = new FindResult(epg, 1.0);
             findResult.setSearchWords(new String[]{phrase});
@@ -153,44 +285,127 @@ public class EPGFinder {
 
     /**
      * Calculate rate by similarity of arguments.
+     * Each channel word is matched with first unmatched EPG word having the same prefix.
+     * Rating is aborted when upper bound of rate falls below given cutoff.
      *
-     * @param channelKeyWords {@link Channel} name divided by words.
-     * @param epgKeyWords     {@link EPG} name divided by words.
+     * @param channelWords {@link Channel} name divided by canonical words.
+     * @param epgTokens    tokens of {@link EPG} name words.
+     * @param epgMatched   scratch buffer for flags of matched EPG words.
+     * @param cutoff       minimal rate which may be accepted.
      * @return rate from 0.0 to 1.0. 1.0 means words has 100% similarity.
+     * {@link Double#NEGATIVE_INFINITY} if rate can't reach cutoff.
      */
-    private double getRate(String[] channelKeyWords, String[] epgKeyWords) {
+    private double getRate(SearchWords channelWords, int[] epgTokens, boolean[] epgMatched, double cutoff) {
+        int chCount = channelWords.factors.length;
+        double total = channelWords.total;
         double matched = 0.0;
-        double total = 0.0;
-        List<String> chWordList = new ArrayList<>(Arrays.asList(channelKeyWords));
-        List<String> epgWordList = new ArrayList<>(Arrays.asList(epgKeyWords));
-        double wordOrderFactor = channelKeyWords.length - 1;
-        int index = 0;
-        for (Iterator<String> itCH = chWordList.iterator(); itCH.hasNext(); ) {
-            String chNext = itCH.next();
-            String chWord = synonyms.getSynonym(chNext);
-            double factor = 1.0 + (wordOrderFactor > 0 ? ((wordOrderFactor - index) / wordOrderFactor) : 0) * WORD_ORDER_FACTOR;
-            if (!chWord.equals(chNext)) {
-                factor *= REPLACE_BY_SYNONYM_FACTOR;
-            }
-            total += factor;
-            for (Iterator<String> itEPG = epgWordList.iterator(); itEPG.hasNext(); ) {
-                String epgNext = itEPG.next();
-                String epgWord = synonyms.getSynonym(epgNext);
-                int length = Math.min(chWord.length(), epgWord.length());
-                if (chWord.substring(0, length).equals(epgWord.substring(0, length))) {
-                    double deltaLength = epgWord.length() - chWord.length();
-                    matched += factor * (double) length / chWord.length() - (deltaLength * FACTOR_DELTA_LENGTH);
-                    if (!epgWord.equals(epgNext)) {
+        Arrays.fill(epgMatched, 0, epgTokens.length, false);
+        int epgUnmatched = epgTokens.length;
+        for (int index = 0; index < chCount; index++) {
+            String chWord = channelWords.words.canonicals[index];
+            int chCanonical = channelWords.words.canonicalIds[index];
+            int chLength = chWord.length();
+            double factor = channelWords.factors[index];
+            for (int j = 0; j < epgTokens.length; j++) {
+                if (epgMatched[j]) continue;
+                int epgToken = epgTokens[j];
+                int epgCanonical = dictionary.getCanonical(epgToken);
+                int epgLength = dictionary.getCanonicalLength(epgCanonical);
+                int length = Math.min(chLength, epgLength);
+                if (chCanonical == epgCanonical
+                        || chWord.regionMatches(0, dictionary.getCanonicalWord(epgCanonical), 0, length)) {
+                    double deltaLength = epgLength - chLength;
+                    matched += factor * (double) length / chLength - (deltaLength * FACTOR_DELTA_LENGTH);
+                    if (dictionary.isReplaced(epgToken)) {
                         matched *= REPLACE_BY_SYNONYM_FACTOR;
                     }
-                    //total += (double) chWord.length();
-                    itCH.remove();
-                    itEPG.remove();
+                    epgMatched[j] = true;
+                    epgUnmatched--;
                     break;
                 }
             }
-            index++;
+            int remaining = chCount - index - 1;
+            double upperBound = (Math.max(matched, 0) + channelWords.remainingBounds[index + 1]) / total
+                    - Math.max(0, epgUnmatched - remaining) * MISSED_WORDS_FACTOR;
+            if (remaining > 0 && upperBound + BOUND_EPSILON < cutoff) {
+                return Double.NEGATIVE_INFINITY;
+            }
+        }
+        return matched / total - ((double) epgUnmatched * MISSED_WORDS_FACTOR);
+    }
+
+    /**
+     * @return true if rating can be skipped, because upper bound of rate is below given cutoff
+     */
+    private boolean isPruned(SearchWords channelWords, int[] epgTokens, double cutoff) {
+        return getUpperBound(channelWords, epgTokens) + BOUND_EPSILON < cutoff;
+    }
+
+    /**
+     * Estimate maximal rate of channel and EPG words by words count and lengths.
+     * Each channel word can match at most one EPG word, so at least difference of words count
+     * of EPG words remains unmatched.
+     */
+    private double getUpperBound(SearchWords channelWords, int[] epgTokens) {
+        int chCount = channelWords.factors.length;
+        if (chCount == 1 && epgTokens.length == 1) {
+            // the only possible match gives known length difference
+            int chLength = channelWords.words.canonicals[0].length();
+            int epgLength = dictionary.getCanonicalLength(dictionary.getCanonical(epgTokens[0]));
+            double deltaLength = epgLength - chLength;
+            double matched = channelWords.factors[0] * (double) Math.min(chLength, epgLength) / chLength
+                    - (deltaLength * FACTOR_DELTA_LENGTH);
+            return Math.max(matched, 0) / channelWords.total;
+        }
+        int matchedCount = Math.min(chCount, epgTokens.length);
+        return channelWords.bestBounds[matchedCount] / channelWords.total
+                - Math.max(0, epgTokens.length - chCount) * MISSED_WORDS_FACTOR;
+    }
+
+    /**
+     * Channel words with precomputed word factors and bounds of matched value.
+     * Matched value of a word is at most its factor if EPG word is longer and
+     * at most {@link EPGFinder#FACTOR_DELTA_LENGTH} per char if EPG word is shorter.
+     */
+    private static final class SearchWords {
+        private final TokenDictionary.Words words;
+        private final double[] factors;
+        private final double total;
+        /**
+         * Sums of matched value bounds of words from index to the end.
+         */
+        private final double[] remainingBounds;
+        /**
+         * Sums of given count of the largest matched value bounds.
+         */
+        private final double[] bestBounds;
+
+        private SearchWords(TokenDictionary.Words words) {
+            this.words = words;
+            int count = words.size();
+            factors = new double[count];
+            double[] bounds = new double[count];
+            double wordOrderFactor = count - 1;
+            double sum = 0.0;
+            for (int index = 0; index < count; index++) {
+                double factor = 1.0 + (wordOrderFactor > 0 ? ((wordOrderFactor - index) / wordOrderFactor) : 0) * WORD_ORDER_FACTOR;
+                if (words.replaced[index]) {
+                    factor *= REPLACE_BY_SYNONYM_FACTOR;
+                }
+                factors[index] = factor;
+                sum += factor;
+                bounds[index] = Math.max(factor, words.canonicals[index].length() * FACTOR_DELTA_LENGTH);
+            }
+            total = sum;
+            remainingBounds = new double[count + 1];
+            for (int index = count - 1; index >= 0; index--) {
+                remainingBounds[index] = remainingBounds[index + 1] + bounds[index];
+            }
+            Arrays.sort(bounds);
+            bestBounds = new double[count + 1];
+            for (int k = 1; k <= count; k++) {
+                bestBounds[k] = bestBounds[k - 1] + bounds[count - k];
+            }
         }
-        return matched / total - ((double) epgWordList.size() * MISSED_WORDS_FACTOR);
     }
 }
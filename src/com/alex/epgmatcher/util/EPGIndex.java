@@ -0,0 +1,195 @@
+package com.alex.epgmatcher.util;
+
+import com.alex.epgmatcher.beans.EPG;
+
+import java.util.*;
+
+/**
+ * Index of EPG names used by {@link EPGFinder}.
+ * Keeps EPG names interned to {@link TokenDictionary} tokens and prefix indexes over synonym-canonical
+ * words, so only EPGs sharing a word prefix with a channel have to be rated.
+ */
+public class EPGIndex {
+    private final Map<String, EPG> epgMap;
+    private final Map<String, EPG> epgIdMap;
+    private final EPG[] epgs;
+    private final int[][] wordTokens;
+    private final int[][] joinedTokens;
+    private final int maxWords;
+    private final TokenDictionary dictionary;
+    private final PrefixIndex wordIndex;
+    private final PrefixIndex joinedIndex;
+
+    /**
+     * Constructs new {@link EPGIndex} with given arguments.
+     *
+     * @param epgMap      map of normalized EPG name to {@link EPG} object
+     * @param epgWordsMap map of normalized EPG name to {@link EPG} name split by words
+     * @param epgIdMap    map of EPG id to {@link EPG} object
+     * @param synonyms    synonyms used for words canonicalization
+     */
+    public EPGIndex(Map<String, EPG> epgMap, Map<String, String[]> epgWordsMap, Map<String, EPG> epgIdMap,
+                    Synonyms synonyms) {
+        this.epgMap = epgMap;
+        this.epgIdMap = epgIdMap;
+        dictionary = new TokenDictionary(synonyms);
+        int size = epgWordsMap.size();
+        epgs = new EPG[size];
+        wordTokens = new int[size][];
+        joinedTokens = new int[size][];
+        Map<String, List<Integer>> wordPostings = new HashMap<>();
+        Map<String, List<Integer>> joinedPostings = new HashMap<>();
+        int max = 0;
+        int index = 0;
+        for (Map.Entry<String, String[]> entry : epgWordsMap.entrySet()) {
+            epgs[index] = epgMap.get(entry.getKey());
+            wordTokens[index] = dictionary.intern(entry.getValue());
+            joinedTokens[index] = new int[]{dictionary.intern(entry.getKey())};
+            for (int token : wordTokens[index]) {
+                addPosting(wordPostings, getCanonicalWord(token), index);
+            }
+            addPosting(joinedPostings, getCanonicalWord(joinedTokens[index][0]), index);
+            max = Math.max(max, wordTokens[index].length);
+            index++;
+        }
+        maxWords = Math.max(max, 1);
+        wordIndex = new PrefixIndex(wordPostings);
+        joinedIndex = new PrefixIndex(joinedPostings);
+    }
+
+    private String getCanonicalWord(int token) {
+        return dictionary.getCanonicalWord(dictionary.getCanonical(token));
+    }
+
+    private static void addPosting(Map<String, List<Integer>> postings, String word, int index) {
+        List<Integer> list = postings.get(word);
+        if (list == null) {
+            list = new ArrayList<>();
+            postings.put(word, list);
+        }
+        if (list.isEmpty() || list.get(list.size() - 1) != index) {
+            list.add(index);
+        }
+    }
+
+    /**
+     * @param key normalized EPG name
+     * @return {@link EPG} with given normalized name or null
+     */
+    public EPG get(String key) {
+        return epgMap.get(key);
+    }
+
+    /**
+     * @param id EPG id
+     * @return {@link EPG} with given id or null
+     */
+    public EPG getById(String id) {
+        return epgIdMap.get(id);
+    }
+
+    /**
+     * @return count of indexed EPGs
+     */
+    public int size() {
+        return epgs.length;
+    }
+
+    /**
+     * @param index index of EPG
+     * @return {@link EPG} by index
+     */
+    public EPG getEpg(int index) {
+        return epgs[index];
+    }
+
+    /**
+     * @param index index of EPG
+     * @return tokens of EPG name words
+     */
+    public int[] getWordTokens(int index) {
+        return wordTokens[index];
+    }
+
+    /**
+     * @param index index of EPG
+     * @return array with single token of EPG name without delimiters
+     */
+    public int[] getJoinedTokens(int index) {
+        return joinedTokens[index];
+    }
+
+    /**
+     * @return maximal count of words in EPG name
+     */
+    public int getMaxWords() {
+        return maxWords;
+    }
+
+    public TokenDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Find indexes of EPGs which may be matched with given words.
+     * EPG is a candidate if any of its canonical words is a prefix of canonical channel word or vice versa.
+     *
+     * @param channelWords       canonical channel words
+     * @param channelJoinedWords canonical channel name without delimiters
+     * @return set of EPG indexes
+     */
+    public BitSet getCandidates(TokenDictionary.Words channelWords, TokenDictionary.Words channelJoinedWords) {
+        BitSet candidates = new BitSet(epgs.length);
+        for (int i = 0; i < channelWords.size(); i++) {
+            wordIndex.collect(channelWords.getCanonical(i), candidates);
+        }
+        joinedIndex.collect(channelJoinedWords.getCanonical(0), candidates);
+        return candidates;
+    }
+
+    /**
+     * Sorted array of words with postings of EPG indexes.
+     */
+    private static class PrefixIndex {
+        private final String[] words;
+        private final int[][] postings;
+
+        private PrefixIndex(Map<String, List<Integer>> postingsMap) {
+            words = postingsMap.keySet().toArray(new String[postingsMap.size()]);
+            Arrays.sort(words);
+            postings = new int[words.length][];
+            for (int i = 0; i < words.length; i++) {
+                List<Integer> list = postingsMap.get(words[i]);
+                int[] array = new int[list.size()];
+                for (int j = 0; j < array.length; j++) {
+                    array[j] = list.get(j);
+                }
+                postings[i] = array;
+            }
+        }
+
+        /**
+         * Add postings of words which are prefixes of given word or starts with given word.
+         * Empty word can't be rated and has no candidates.
+         */
+        private void collect(String word, BitSet result) {
+            if (word.isEmpty()) return;
+            for (int length = 0; length < word.length(); length++) {
+                int found = Arrays.binarySearch(words, word.substring(0, length));
+                if (found >= 0) {
+                    addPostings(found, result);
+                }
+            }
+            int found = Arrays.binarySearch(words, word);
+            for (int i = found >= 0 ? found : -found - 1; i < words.length && words[i].startsWith(word); i++) {
+                addPostings(i, result);
+            }
+        }
+
+        private void addPostings(int wordIndex, BitSet result) {
+            for (int index : postings[wordIndex]) {
+                result.set(index);
+            }
+        }
+    }
+}
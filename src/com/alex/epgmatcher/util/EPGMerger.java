@@ -0,0 +1,92 @@
+package com.alex.epgmatcher.util;
+
+import com.alex.epgmatcher.beans.EPG;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Thread safe merger of EPG lists from several sources into one deduplicated catalog.
+ * Channels with the same normalized name or the same id are duplicates, channel of source with higher priority
+ * is kept, on equal priority the earlier source wins. Several names of one channel in the same source are kept.
+ * Channel dropped as duplicate doesn't hide its other name or id, so channel of lower priority source is kept
+ * when its duplicate of higher priority source was dropped itself.
+ * Sources are added concurrently as soon as they are parsed, result doesn't depend on order of adding.
+ */
+public class EPGMerger {
+
+    private final int[] priorities;
+    private final AtomicReferenceArray<List<EPG>> sources;
+
+    /**
+     * Constructs new EPGMerger.
+     *
+     * @param priorities priority of each source in order of sources, higher priority wins
+     */
+    public EPGMerger(int[] priorities) {
+        this.priorities = priorities.clone();
+        this.sources = new AtomicReferenceArray<>(priorities.length);
+    }
+
+    /**
+     * Add EPGs of source. Can be called concurrently for different sources.
+     *
+     * @param source index of source
+     * @param epgs   EPGs of source
+     */
+    public void add(int source, List<EPG> epgs) {
+        sources.set(source, epgs);
+    }
+
+    /**
+     * Resolve duplicates in order of priority of sources, every kept EPG reserves its name and its id.
+     *
+     * @return deduplicated EPGs of all added sources in order of sources
+     */
+    public List<EPG> getEpgs() {
+        Integer[] order = new Integer[sources.length()];
+        for (int source = 0; source < order.length; source++) {
+            order[source] = source;
+        }
+        // higher priority first, earlier source on equal priority
+        Arrays.sort(order, (first, second) -> priorities[first] != priorities[second]
+                ? Integer.compare(priorities[second], priorities[first]) : Integer.compare(first, second));
+        Map<String, Integer> names = new HashMap<>();
+        Map<String, Integer> ids = new HashMap<>();
+        boolean[][] kept = new boolean[order.length][];
+        for (int source : order) {
+            List<EPG> epgs = sources.get(source);
+            if (epgs == null) continue;
+            kept[source] = new boolean[epgs.size()];
+            for (int i = 0; i < epgs.size(); i++) {
+                EPG epg = epgs.get(i);
+                String name = epg.getNormalizedName();
+                String id = epg.getId();
+                if (names.containsKey(name)) continue;
+                // names of one channel in the same source share id
+                Integer idSource = id.isEmpty() ? null : ids.get(id);
+                if (idSource != null && idSource != source) continue;
+                names.put(name, source);
+                if (!id.isEmpty()) {
+                    ids.put(id, source);
+                }
+                kept[source][i] = true;
+            }
+        }
+        List<EPG> result = new ArrayList<>();
+        for (int source = 0; source < kept.length; source++) {
+            List<EPG> epgs = sources.get(source);
+            if (epgs == null) continue;
+            for (int i = 0; i < epgs.size(); i++) {
+                if (kept[source][i]) {
+                    result.add(epgs.get(i));
+                }
+            }
+        }
+        return result;
+    }
+}
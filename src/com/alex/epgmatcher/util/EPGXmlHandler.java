@@ -6,30 +6,49 @@ import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Parser for EPG xml.
  * This class parsing only {@link EPGXmlHandler#ELEMENT_CHANNEL},
  * {@link EPGXmlHandler#ELEMENT_DISPLAY_NAME}, {@link EPGXmlHandler#ID_ATTRIBUTE} and
  * {@link EPGXmlHandler#LANG_ATTRIBUTE} tags and attributes.
+ * XMLTV lists channels before programmes, so by default parsing is stopped by
+ * {@link ChannelsEndException} on the first {@link EPGXmlHandler#ELEMENT_PROGRAMME} after channels.
  * Created by Alex on 18.04.2017.
  */
 public class EPGXmlHandler extends DefaultHandler {
 
     private final static String ELEMENT_CHANNEL = "channel";
     private final static String ELEMENT_DISPLAY_NAME = "display-name";
+    private final static String ELEMENT_PROGRAMME = "programme";
     private static final String ID_ATTRIBUTE = "id";
     private static final String LANG_ATTRIBUTE = "lang";
+    private static final int MAX_LANGS = 1024;
 
     private final StringBuilder content = new StringBuilder();
+    private final boolean stopAfterChannels;
+    private final Map<String, String> langs = new HashMap<>();
 
 
     private List<EPG> resultList;
     private EPG epgChannel;
 
     public EPGXmlHandler() {
+        this(true);
+    }
+
+    /**
+     * Constructs new EPGXmlHandler.
+     *
+     * @param stopAfterChannels stop parsing on the first programme after channels,
+     *                          false for documents with channels interleaved with programmes.
+     */
+    public EPGXmlHandler(boolean stopAfterChannels) {
         super();
+        this.stopAfterChannels = stopAfterChannels;
     }
 
     @Override
@@ -39,7 +58,10 @@ public class EPGXmlHandler extends DefaultHandler {
 
     @Override
     public void characters(char[] ch, int start, int length) throws SAXException {
-        content.append(ch, start, length);
+        // only channel content is used
+        if (epgChannel != null) {
+            content.append(ch, start, length);
+        }
     }
 
     @Override
@@ -52,7 +74,11 @@ public class EPGXmlHandler extends DefaultHandler {
             epgChannel.setId(attributes.getValue(ID_ATTRIBUTE));
         } else if (ELEMENT_DISPLAY_NAME.equals(elementName)) {
             if (epgChannel != null) {
-                epgChannel.setLang(attributes.getValue(LANG_ATTRIBUTE));
+                epgChannel.setLang(getLang(attributes.getValue(LANG_ATTRIBUTE)));
+            }
+        } else if (ELEMENT_PROGRAMME.equals(elementName)) {
+            if (stopAfterChannels && !resultList.isEmpty()) {
+                throw new ChannelsEndException();
             }
         }
     }
@@ -72,10 +98,34 @@ public class EPGXmlHandler extends DefaultHandler {
         }
     }
 
+    /**
+     * @return shared instance of equal language, languages are repeated for every channel of EPG.
+     */
+    private String getLang(String lang) {
+        if (lang == null) return null;
+        String shared = langs.get(lang);
+        if (shared != null) return shared;
+        if (langs.size() < MAX_LANGS) {
+            langs.put(lang, lang);
+        }
+        return lang;
+    }
+
     /**
      * @return list of {@link EPG} after EPG parsing.
      */
     public List<EPG> getResults() {
         return resultList;
     }
+
+    /**
+     * Exception thrown for stopping parsing after channels section.
+     */
+    static class ChannelsEndException extends SAXException {
+        private static final long serialVersionUID = 1L;
+
+        private ChannelsEndException() {
+            super("End of channels");
+        }
+    }
 }
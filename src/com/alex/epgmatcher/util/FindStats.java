@@ -0,0 +1,38 @@
+package com.alex.epgmatcher.util;
+
+/**
+ * Counters of one EPG search for channel.
+ */
+final class FindStats {
+
+    /**
+     * The way EPG was found.
+     */
+    enum Path {
+        MAPPING, ID, NAME, WORDS
+    }
+
+    final String name;
+    Path path;
+    /**
+     * Count of EPGs sharing a word prefix with the channel, each of them is counted once
+     * as scored, pruned or aborted.
+     */
+    int candidates;
+    /**
+     * Candidates rated to the end by at least one of joined words and words passes.
+     */
+    int scored;
+    /**
+     * Candidates skipped by both passes because their rate upper bound is below cutoff.
+     */
+    int pruned;
+    /**
+     * Other candidates, which rating was aborted because rate upper bound fell below cutoff.
+     */
+    int aborted;
+
+    FindStats(String name) {
+        this.name = name;
+    }
+}
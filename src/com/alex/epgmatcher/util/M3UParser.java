@@ -0,0 +1,253 @@
+package com.alex.epgmatcher.util;
+
+import com.alex.epgmatcher.beans.Channel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Streaming parser of M3U playlist working on UTF-8 bytes.
+ * Lines are separated by LF, CRLF or CR. Only {@link M3UParser#EXTINF} lines and lines following them
+ * are decoded to strings, other lines are skipped as bytes.
+ * EXTINF line is split to id and name by the first comma outside of quoted attribute values.
+ * Equal group titles of parsed channels share one string.
+ */
+public class M3UParser {
+    private static final byte[] EXTINF = "#EXTINF:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final char QUOTE = '"';
+    private static final char SEPARATOR = ',';
+    private static final String TVG_ID = "tvg-id";
+    private static final String TVG_NAME = "tvg-name";
+    private static final String GROUP_TITLE = "group-title";
+    /**
+     * Maximal count of shared group titles, playlists usually have only tens of groups.
+     */
+    private static final int MAX_GROUP_TITLES = 4096;
+
+    private final InputStream inputStream;
+    private final Map<String, String> groupTitles = new HashMap<>();
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    private int start;
+    private int end;
+    private boolean eof;
+    private int lineStart;
+    private int lineEnd;
+
+    /**
+     * Constructs new M3UParser.
+     *
+     * @param inputStream stream of playlist in UTF-8
+     */
+    public M3UParser(InputStream inputStream) {
+        this.inputStream = inputStream;
+    }
+
+    /**
+     * Parse playlist and pass every channel to given consumer.
+     * Channel has id and name from EXTINF line split by first comma outside of quotes,
+     * attributes parsed from id and url from the next line.
+     *
+     * @param consumer consumer of parsed channels
+     * @throws IOException if an I/O error has occurred
+     */
+    public void parse(Consumer<Channel> consumer) throws IOException {
+        skipBOM();
+        while (nextLine()) {
+            if (!startsWith(EXTINF)) continue;
+            int comma = indexOfSeparator(lineStart + EXTINF.length, lineEnd);
+            if (comma < 0) continue;
+            Channel channel = new Channel();
+            channel.setId(decode(lineStart + EXTINF.length, comma));
+            channel.setName(decode(comma + 1, lineEnd));
+            setAttributes(channel, channel.getId());
+            channel.setGroupTitle(getGroupTitle(channel.getGroupTitle()));
+            if (nextLine()) {
+                channel.setUrl(decode(lineStart, lineEnd));
+            }
+            consumer.accept(channel);
+        }
+    }
+
+    private void skipBOM() throws IOException {
+        while (end - start < BOM.length && fill()) {
+            // read enough bytes for BOM check
+        }
+        if (end - start >= BOM.length && buffer[start] == BOM[0] && buffer[start + 1] == BOM[1]
+                && buffer[start + 2] == BOM[2]) {
+            start += BOM.length;
+        }
+    }
+
+    /**
+     * Find next line and set its bounds.
+     *
+     * @return false if there are no more lines
+     */
+    private boolean nextLine() throws IOException {
+        int position = start;
+        while (true) {
+            for (; position < end; position++) {
+                byte b = buffer[position];
+                if (b == '\n' || b == '\r') {
+                    if (b == '\r') {
+                        // CRLF may be split between reads
+                        if (position + 1 == end && !eof) {
+                            int offset = position - start;
+                            fill();
+                            position = start + offset;
+                        }
+                        lineStart = start;
+                        lineEnd = position;
+                        start = position + 1 < end && buffer[position + 1] == '\n' ? position + 2 : position + 1;
+                    } else {
+                        lineStart = start;
+                        lineEnd = position;
+                        start = position + 1;
+                    }
+                    return true;
+                }
+            }
+            int offset = position - start;
+            if (!fill()) {
+                if (start == end) {
+                    return false;
+                }
+                // last line without line separator
+                lineStart = start;
+                lineEnd = end;
+                start = end;
+                return true;
+            }
+            position = start + offset;
+        }
+    }
+
+    /**
+     * Read more bytes to buffer, moving unprocessed bytes to its beginning or growing it for long lines.
+     *
+     * @return false on end of stream
+     */
+    private boolean fill() throws IOException {
+        if (eof) return false;
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            start = 0;
+        }
+        if (end == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int count = inputStream.read(buffer, end, buffer.length - end);
+        if (count < 0) {
+            eof = true;
+            return false;
+        }
+        end += count;
+        return true;
+    }
+
+    private boolean startsWith(byte[] prefix) {
+        if (lineEnd - lineStart < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer[lineStart + i] != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    private int indexOfSeparator(int from, int to) {
+        boolean quoted = false;
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == QUOTE) {
+                quoted = !quoted;
+            } else if (buffer[i] == SEPARATOR && !quoted) {
+                return i;
+            }
+        }
+        // unbalanced quotes
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == SEPARATOR) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Find separator of id and name in EXTINF line.
+     *
+     * @param info EXTINF line without {@link M3UParser#EXTINF} prefix
+     * @return index of the first comma outside of quoted values or -1
+     */
+    public static int indexOfSeparator(String info) {
+        boolean quoted = false;
+        for (int i = 0; i < info.length(); i++) {
+            char c = info.charAt(i);
+            if (c == QUOTE) {
+                quoted = !quoted;
+            } else if (c == SEPARATOR && !quoted) {
+                return i;
+            }
+        }
+        // unbalanced quotes
+        return info.indexOf(SEPARATOR);
+    }
+
+    /**
+     * Set tvg-id, tvg-name and group-title attributes of channel
+     * from attributes part of EXTINF line like <code>-1 tvg-id="id" group-title="group"</code>.
+     *
+     * @param channel channel for setting attributes
+     * @param info    EXTINF line part before name
+     */
+    public static void setAttributes(Channel channel, String info) {
+        int length = info.length();
+        int index = 0;
+        while (index < length) {
+            int equals = info.indexOf('=', index);
+            if (equals < 0) break;
+            int keyStart = equals;
+            while (keyStart > index && info.charAt(keyStart - 1) != ' ') {
+                keyStart--;
+            }
+            String key = info.substring(keyStart, equals);
+            int valueStart = equals + 1;
+            int valueEnd;
+            if (valueStart < length && info.charAt(valueStart) == QUOTE) {
+                valueStart++;
+                valueEnd = info.indexOf(QUOTE, valueStart);
+                if (valueEnd < 0) valueEnd = length;
+                index = valueEnd + 1;
+            } else {
+                valueEnd = info.indexOf(' ', valueStart);
+                if (valueEnd < 0) valueEnd = length;
+                index = valueEnd;
+            }
+            String value = info.substring(valueStart, valueEnd);
+            if (TVG_ID.equalsIgnoreCase(key)) {
+                channel.setTvgId(value);
+            } else if (TVG_NAME.equalsIgnoreCase(key)) {
+                channel.setTvgName(value);
+            } else if (GROUP_TITLE.equalsIgnoreCase(key)) {
+                channel.setGroupTitle(value);
+            }
+        }
+    }
+
+    private String getGroupTitle(String groupTitle) {
+        String shared = groupTitles.get(groupTitle);
+        if (shared != null) return shared;
+        if (groupTitles.size() < MAX_GROUP_TITLES) {
+            groupTitles.put(groupTitle, groupTitle);
+        }
+        return groupTitle;
+    }
+
+    private String decode(int from, int to) {
+        return new String(buffer, from, to - from, StandardCharsets.UTF_8);
+    }
+}
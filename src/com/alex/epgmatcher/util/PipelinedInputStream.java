@@ -0,0 +1,238 @@
+package com.alex.epgmatcher.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Stream reading wrapped {@link InputStream} in separate producer thread.
+ * Producer reads (and inflates) source into buffers which are passed to reading thread through
+ * bounded ring of buffers, so network reading and decompression overlap with parsing.
+ * Buffers are reused, producer waits when all buffers are filled and not read yet.
+ * Source is read only by producer, so it's closed by producer if stream is closed while producer is running.
+ * If {@link RunMetrics} are collected, time of reading by producer is recorded on end of reading
+ * as {@link RunMetrics.Phase#DOWNLOAD} time of network stream and {@link RunMetrics.Phase#INFLATE} time of the rest.
+ */
+public class PipelinedInputStream extends InputStream {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int BUFFER_COUNT = 8;
+    private static final String THREAD_NAME = "Pipelined reader";
+
+    private final InputStream source;
+    private final CountingInputStream download;
+    private final BlockingQueue<Buffer> filled;
+    private final BlockingQueue<Buffer> free;
+    private final Thread producer;
+    private final Object closeLock = new Object();
+    private volatile IOException error;
+    private volatile boolean closed;
+    /**
+     * Producer has returned and doesn't read source anymore, guarded by closeLock.
+     */
+    private boolean finished;
+    private Buffer current;
+    private int position;
+    private boolean end;
+
+    /**
+     * Constructs new PipelinedInputStream and starts producer thread.
+     *
+     * @param source stream to be read in producer thread.
+     */
+    public PipelinedInputStream(InputStream source) {
+        this(source, null);
+    }
+
+    /**
+     * Constructs new PipelinedInputStream and starts producer thread.
+     *
+     * @param source   stream to be read in producer thread.
+     * @param download network stream wrapped by source for measuring of download time or null
+     */
+    public PipelinedInputStream(InputStream source, CountingInputStream download) {
+        this.source = source;
+        this.download = download;
+        filled = new ArrayBlockingQueue<>(BUFFER_COUNT);
+        free = new ArrayBlockingQueue<>(BUFFER_COUNT);
+        for (int i = 0; i < BUFFER_COUNT; i++) {
+            free.add(new Buffer());
+        }
+        producer = new Thread(this::produce, THREAD_NAME);
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    private void produce() {
+        boolean timed = RunMetrics.isEnabled();
+        long startBytes = timed ? RunMetrics.getAllocatedBytes() : -1;
+        long fillNanos = 0;
+        Buffer buffer = null;
+        try {
+            while (!closed) {
+                buffer = free.take();
+                long start = timed ? System.nanoTime() : 0;
+                buffer.length = fill(buffer.data);
+                if (timed) {
+                    fillNanos += System.nanoTime() - start;
+                    if (buffer.length < 0) {
+                        // record before reader can see end of stream
+                        record(fillNanos, startBytes);
+                        timed = false;
+                    }
+                }
+                filled.put(buffer);
+                if (buffer.length < 0) {
+                    return;
+                }
+                buffer = null;
+            }
+        } catch (InterruptedException ignored) {
+        } catch (IOException | RuntimeException e) {
+            if (!closed && buffer != null) {
+                error = e instanceof IOException ? (IOException) e : new IOException(e);
+                if (timed) {
+                    record(fillNanos, startBytes);
+                    timed = false;
+                }
+                // pass end of stream to reader, queue has room for all buffers
+                buffer.length = -1;
+                filled.offer(buffer);
+            }
+        } finally {
+            if (timed) {
+                record(fillNanos, startBytes);
+            }
+            finish();
+        }
+    }
+
+    /**
+     * Mark producer as finished and close source if stream was closed while producer was running.
+     */
+    private void finish() {
+        synchronized (closeLock) {
+            finished = true;
+            if (!closed) return;
+        }
+        try {
+            source.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Record time and allocation of producer, allocation is counted in inflate phase.
+     */
+    private void record(long fillNanos, long startBytes) {
+        long downloadNanos = download != null ? download.getReadNanos() : 0;
+        long bytes = startBytes >= 0 ? RunMetrics.getAllocatedBytes() - startBytes : -1;
+        RunMetrics.record(RunMetrics.Phase.DOWNLOAD, downloadNanos, -1);
+        RunMetrics.record(RunMetrics.Phase.INFLATE, Math.max(fillNanos - downloadNanos, 0), bytes);
+        if (download != null) {
+            RunMetrics.add(RunMetrics.Counter.BYTES_READ, download.getCount());
+        }
+    }
+
+    /**
+     * Read source until buffer is full or end of source.
+     *
+     * @return count of read bytes or -1 on end of source
+     */
+    private int fill(byte[] data) throws IOException {
+        int length = 0;
+        while (length < data.length && !closed) {
+            int count = source.read(data, length, data.length - length);
+            if (count < 0) {
+                return length > 0 ? length : -1;
+            }
+            length += count;
+        }
+        return length;
+    }
+
+    /**
+     * @return true if current buffer has bytes to read, false on end of stream
+     */
+    private boolean next() throws IOException {
+        if (end) return false;
+        if (current != null && position < current.length) return true;
+        if (current != null) {
+            free.offer(current);
+            current = null;
+        }
+        try {
+            current = filled.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        position = 0;
+        if (current.length < 0) {
+            end = true;
+            if (error != null) {
+                throw error;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        while (next()) {
+            if (position < current.length) {
+                return current.data[position++] & 0xff;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        while (next()) {
+            int count = Math.min(len, current.length - position);
+            if (count > 0) {
+                System.arraycopy(current.data, position, b, off, count);
+                position += count;
+                return count;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (end) return 0;
+        if (current != null && position < current.length) {
+            return current.length - position;
+        }
+        Buffer next = filled.peek();
+        return next != null ? Math.max(next.length, 0) : 0;
+    }
+
+    /**
+     * Stop producer and close source.
+     * If producer is still running, source is closed by producer after its current read,
+     * because source can't be closed while it's read in other thread.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (closeLock) {
+            if (closed) return;
+            closed = true;
+            if (!finished) {
+                producer.interrupt();
+                return;
+            }
+        }
+        source.close();
+    }
+
+    private static class Buffer {
+        private final byte[] data = new byte[BUFFER_SIZE];
+        private int length;
+    }
+}
@@ -0,0 +1,16 @@
+package com.alex.epgmatcher.util;
+
+import com.alex.epgmatcher.beans.Progress;
+
+/**
+ * Listener of source reading progress.
+ * It is called from reading thread, not more often than {@link CountingInputStream#NOTIFY_INTERVAL}
+ * and once on the end of reading.
+ */
+public interface ProgressListener {
+
+    /**
+     * @param progress current progress of source reading
+     */
+    void onProgress(Progress progress);
+}
@@ -0,0 +1,283 @@
+package com.alex.epgmatcher.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collector of wall time and allocation of run phases and of run counters.
+ * Metrics are collected only when current instance is set by {@link RunMetrics#setCurrent(RunMetrics)},
+ * otherwise recording methods do nothing.
+ * Phase is measured by saving of {@link System#nanoTime()} and {@link RunMetrics#getStartBytes()}
+ * before the phase and by {@link RunMetrics#recordSince(Phase, long, long)} in finally block after it.
+ * Allocation is measured for the thread running the phase, threads of parallel matching add their allocation
+ * by {@link RunMetrics#recordAllocation(Phase, long)}. Allocation of reading thread in inflate phase isn't included.
+ */
+public final class RunMetrics {
+
+    /**
+     * Phases of run.
+     */
+    public enum Phase {
+        CONNECT, DOWNLOAD, INFLATE, PARSE, INDEX, MATCH, DEDUPE, WRITE
+    }
+
+    /**
+     * Counters of run.
+     */
+    public enum Counter {
+        CHANNELS, CANDIDATES, SCORED, PRUNED, ABORTED, MAPPING_HITS, ID_HITS, NAME_HITS, WORD_SEARCHES,
+        SOURCE_CACHE_HITS, SOURCE_CACHE_MISSES, BYTES_READ
+    }
+
+    private static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
+    private static final long NANOS_IN_MILLI = 1000000;
+    private static volatile RunMetrics current;
+
+    private final boolean channelDetails;
+    private final long startTime = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+    private final LongAdder[] phaseCounts = createAdders(Phase.values().length);
+    private final LongAdder[] phaseNanos = createAdders(Phase.values().length);
+    private final LongAdder[] phaseBytes = createAdders(Phase.values().length);
+    private final LongAdder[] counters = createAdders(Counter.values().length);
+    private final Queue<FindStats> channels = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constructs new RunMetrics.
+     *
+     * @param channelDetails keep search counters of each channel
+     */
+    public RunMetrics(boolean channelDetails) {
+        this.channelDetails = channelDetails;
+    }
+
+    /**
+     * @param metrics collector of current run or null for disabling of metrics
+     */
+    public static void setCurrent(RunMetrics metrics) {
+        current = metrics;
+    }
+
+    /**
+     * @return collector of current run or null if metrics are disabled
+     */
+    public static RunMetrics getCurrent() {
+        return current;
+    }
+
+    /**
+     * @return bytes allocated by current thread before phase or -1 if metrics are disabled
+     */
+    public static long getStartBytes() {
+        return current != null ? getAllocatedBytes() : -1;
+    }
+
+    /**
+     * Record phase measured by current thread.
+     *
+     * @param phase      measured phase
+     * @param startNanos {@link System#nanoTime()} before phase
+     * @param startBytes {@link RunMetrics#getStartBytes()} before phase
+     */
+    public static void recordSince(Phase phase, long startNanos, long startBytes) {
+        if (current == null) return;
+        long nanos = System.nanoTime() - startNanos;
+        record(phase, nanos, startBytes >= 0 ? getAllocatedBytes() - startBytes : -1);
+    }
+
+    /**
+     * Record measured phase.
+     *
+     * @param phase          measured phase
+     * @param nanos          wall time of phase
+     * @param allocatedBytes bytes allocated in phase or -1 if it is unknown
+     */
+    public static void record(Phase phase, long nanos, long allocatedBytes) {
+        RunMetrics metrics = current;
+        if (metrics == null) return;
+        metrics.phaseCounts[phase.ordinal()].increment();
+        metrics.phaseNanos[phase.ordinal()].add(nanos);
+        if (allocatedBytes > 0) {
+            metrics.phaseBytes[phase.ordinal()].add(allocatedBytes);
+        }
+    }
+
+    /**
+     * Record allocation of part of phase running in other thread than the phase itself,
+     * time of the phase is recorded by the thread which started it.
+     *
+     * @param phase      measured phase
+     * @param startBytes {@link RunMetrics#getStartBytes()} before part of phase in current thread
+     */
+    public static void recordAllocation(Phase phase, long startBytes) {
+        RunMetrics metrics = current;
+        if (metrics == null || startBytes < 0) return;
+        long allocatedBytes = getAllocatedBytes() - startBytes;
+        if (allocatedBytes > 0) {
+            metrics.phaseBytes[phase.ordinal()].add(allocatedBytes);
+        }
+    }
+
+    /**
+     * @param counter counter
+     * @param value   value added to counter
+     */
+    public static void add(Counter counter, long value) {
+        RunMetrics metrics = current;
+        if (metrics == null) return;
+        metrics.counters[counter.ordinal()].add(value);
+    }
+
+    /**
+     * @return true if metrics are collected
+     */
+    public static boolean isEnabled() {
+        return current != null;
+    }
+
+    /**
+     * Add counters of one EPG search.
+     */
+    static void add(FindStats stats) {
+        RunMetrics metrics = current;
+        if (metrics == null) return;
+        metrics.counters[Counter.CANDIDATES.ordinal()].add(stats.candidates);
+        metrics.counters[Counter.SCORED.ordinal()].add(stats.scored);
+        metrics.counters[Counter.PRUNED.ordinal()].add(stats.pruned);
+        metrics.counters[Counter.ABORTED.ordinal()].add(stats.aborted);
+        switch (stats.path) {
+            case MAPPING:
+                metrics.counters[Counter.MAPPING_HITS.ordinal()].increment();
+                break;
+            case ID:
+                metrics.counters[Counter.ID_HITS.ordinal()].increment();
+                break;
+            case NAME:
+                metrics.counters[Counter.NAME_HITS.ordinal()].increment();
+                break;
+            default:
+                metrics.counters[Counter.WORD_SEARCHES.ordinal()].increment();
+        }
+        if (metrics.channelDetails) {
+            metrics.channels.add(stats);
+        }
+    }
+
+    /**
+     * @return bytes allocated by current thread or -1 if it isn't supported by JVM
+     */
+    public static long getAllocatedBytes() {
+        return AllocationCounter.getAllocatedBytes();
+    }
+
+    /**
+     * Write metrics as JSON object with start time, elapsed time, phases, counters
+     * and search counters of each channel if they are kept.
+     *
+     * @param writer writer for JSON
+     * @throws IOException if an I/O error has occurred
+     */
+    public void writeJson(Writer writer) throws IOException {
+        SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_FORMAT, Locale.ROOT);
+        writer.write("{\n  \"startTime\": " + quote(dateFormat.format(new Date(startTime))) + ",\n");
+        writer.write("  \"elapsedMillis\": " + (System.nanoTime() - startNanos) / NANOS_IN_MILLI + ",\n");
+        writer.write("  \"phases\": {");
+        for (Phase phase : Phase.values()) {
+            int i = phase.ordinal();
+            writer.write(i == 0 ? "\n" : ",\n");
+            writer.write("    " + quote(getName(phase)) + ": {\"count\": " + phaseCounts[i].sum()
+                    + ", \"millis\": " + phaseNanos[i].sum() / NANOS_IN_MILLI
+                    + ", \"allocatedBytes\": " + phaseBytes[i].sum() + "}");
+        }
+        writer.write("\n  },\n  \"counters\": {");
+        for (Counter counter : Counter.values()) {
+            writer.write(counter.ordinal() == 0 ? "\n" : ",\n");
+            writer.write("    " + quote(getName(counter)) + ": " + counters[counter.ordinal()].sum());
+        }
+        writer.write("\n  }");
+        if (channelDetails) {
+            writer.write(",\n  \"channels\": [");
+            boolean first = true;
+            for (FindStats stats : channels) {
+                writer.write(first ? "\n" : ",\n");
+                first = false;
+                writer.write("    {\"name\": " + quote(stats.name) + ", \"path\": " + quote(getName(stats.path))
+                        + ", \"candidates\": " + stats.candidates + ", \"scored\": " + stats.scored
+                        + ", \"pruned\": " + stats.pruned + ", \"aborted\": " + stats.aborted + "}");
+            }
+            writer.write("\n  ]");
+        }
+        writer.write("\n}\n");
+        writer.flush();
+    }
+
+    private static String getName(Enum<?> value) {
+        StringBuilder name = new StringBuilder();
+        boolean upper = false;
+        for (char c : value.name().toCharArray()) {
+            if (c == '_') {
+                upper = true;
+            } else {
+                name.append(upper ? c : Character.toLowerCase(c));
+                upper = false;
+            }
+        }
+        return name.toString();
+    }
+
+    private static String quote(String value) {
+        StringBuilder result = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                result.append('\\').append(c);
+            } else if (c < ' ') {
+                result.append(String.format("\\u%04x", (int) c));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.append('"').toString();
+    }
+
+    private static LongAdder[] createAdders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Holder of thread allocation counter, which is initialized on the first use.
+     */
+    private static final class AllocationCounter {
+        private static final com.sun.management.ThreadMXBean BEAN = getBean();
+
+        private static com.sun.management.ThreadMXBean getBean() {
+            try {
+                ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+                if (bean instanceof com.sun.management.ThreadMXBean) {
+                    com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+                    if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                        return sunBean;
+                    }
+                }
+            } catch (RuntimeException | LinkageError ignored) {
+            }
+            return null;
+        }
+
+        private static long getAllocatedBytes() {
+            return BEAN != null ? BEAN.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+        }
+    }
+}
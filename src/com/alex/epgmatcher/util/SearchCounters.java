@@ -0,0 +1,40 @@
+package com.alex.epgmatcher.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe sums of candidate counters of EPG searches of one matching run.
+ * Unlike counters of {@link RunMetrics} they don't include searches of other runs running concurrently.
+ */
+public final class SearchCounters {
+    private final LongAdder scored = new LongAdder();
+    private final LongAdder pruned = new LongAdder();
+    private final LongAdder aborted = new LongAdder();
+
+    void add(FindStats stats) {
+        scored.add(stats.scored);
+        pruned.add(stats.pruned);
+        aborted.add(stats.aborted);
+    }
+
+    /**
+     * @return count of candidates rated to the end
+     */
+    public long getScored() {
+        return scored.sum();
+    }
+
+    /**
+     * @return count of candidates skipped by rate upper bound
+     */
+    public long getPruned() {
+        return pruned.sum();
+    }
+
+    /**
+     * @return count of candidates which rating was aborted
+     */
+    public long getAborted() {
+        return aborted.sum();
+    }
+}
@@ -0,0 +1,399 @@
+package com.alex.epgmatcher.util;
+
+import com.alex.epgmatcher.beans.InputStreamReaderData;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * On-disk cache of downloaded sources keyed by URL.
+ * Content is stored as it was received (still compressed) with its ETag and Last-Modified headers,
+ * which are sent back in conditional requests. Response 304 is served from cached copy.
+ * When total size of cached content exceeds maximal size the least recently used entries are evicted.
+ * Content is cached only if it's read to the end. If stream is closed before its end
+ * (EPG channels are read without programmes), the rest of content is read into cache in background thread,
+ * so reader doesn't wait for it. Background reading is aborted and partial content is discarded
+ * if content is larger than maximal size of cache or it isn't read in {@link SourceCache#DRAIN_TIMEOUT}.
+ */
+public class SourceCache {
+    private static final String DATA_SUFFIX = ".data";
+    private static final String META_SUFFIX = ".properties";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final long DRAIN_TIMEOUT = TimeUnit.MINUTES.toMillis(10);
+    private static final String DRAIN_THREAD_NAME = "Cache drain";
+    private static final String ETAG = "ETag";
+    private static final String LAST_MODIFIED = "Last-Modified";
+    private static final String IF_NONE_MATCH = "If-None-Match";
+    private static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    private static final String URL_PROPERTY = "url";
+    private static final String ERROR_CACHE_WRITE = "Error on write cache: ";
+    private static final String MSG_CACHE_HIT = "Not modified, loading from cache: ";
+    private static final String MSG_DRAIN_ABORTED = "Content isn't cached, it's too large or too slow: ";
+    private final static Logger logger = Logger.getGlobal();
+
+    private final File directory;
+    private final long maxSize;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+    /**
+     * Streams which content isn't cached or discarded yet.
+     */
+    private final Set<CachingInputStream> pending = new HashSet<>();
+
+    /**
+     * Constructs new SourceCache.
+     *
+     * @param directory directory for cached content
+     * @param maxSize   maximal size in bytes of cached content, 0 for unlimited size
+     * @throws IOException if directory can't be created
+     */
+    public SourceCache(File directory, long maxSize) throws IOException {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        Files.createDirectories(directory.toPath());
+        deleteStaleTemps();
+    }
+
+    /**
+     * Connect with conditional request and retrieve data from network or from cache.
+     * Content received from network is stored in cache while it is read.
+     * Closing stream before its end reads the rest of content into cache in background,
+     * see {@link SourceCache#awaitDrains()}.
+     *
+     * @param connection not connected URLConnection
+     * @return data of source
+     * @throws IOException if an I/O error has occurred
+     */
+    public InputStreamReaderData open(URLConnection connection) throws IOException {
+        if (!(connection instanceof HttpURLConnection)) {
+            connection.connect();
+            return new InputStreamReaderData(connection);
+        }
+        HttpURLConnection httpConnection = (HttpURLConnection) connection;
+        String url = connection.getURL().toString();
+        String key = getKey(url);
+        File data = new File(directory, key + DATA_SUFFIX);
+        Properties meta = loadMeta(key);
+        if (meta != null && data.isFile()) {
+            String etag = meta.getProperty(ETAG);
+            String lastModified = meta.getProperty(LAST_MODIFIED);
+            if (etag != null) {
+                connection.setRequestProperty(IF_NONE_MATCH, etag);
+            }
+            if (lastModified != null) {
+                connection.setRequestProperty(IF_MODIFIED_SINCE, lastModified);
+            }
+        }
+        connection.connect();
+        if (httpConnection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            httpConnection.disconnect();
+            logger.finest(MSG_CACHE_HIT + url);
+            hits.incrementAndGet();
+            RunMetrics.add(RunMetrics.Counter.SOURCE_CACHE_HITS, 1);
+            bytesSaved.addAndGet(data.length());
+            data.setLastModified(System.currentTimeMillis());
+            return new InputStreamReaderData(data.length(), new FileInputStream(data));
+        }
+        misses.incrementAndGet();
+        RunMetrics.add(RunMetrics.Counter.SOURCE_CACHE_MISSES, 1);
+        InputStream inputStream = connection.getInputStream();
+        Properties newMeta = new Properties();
+        newMeta.setProperty(URL_PROPERTY, url);
+        String etag = connection.getHeaderField(ETAG);
+        String lastModified = connection.getHeaderField(LAST_MODIFIED);
+        if (etag != null) {
+            newMeta.setProperty(ETAG, etag);
+        }
+        if (lastModified != null) {
+            newMeta.setProperty(LAST_MODIFIED, lastModified);
+        }
+        if (etag == null && lastModified == null) {
+            // conditional request is impossible without validators
+            return new InputStreamReaderData(connection.getContentLengthLong(), inputStream);
+        }
+        return new InputStreamReaderData(connection.getContentLengthLong(),
+                new CachingInputStream(inputStream, key, newMeta));
+    }
+
+    /**
+     * @return count of sources served from cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return count of sources downloaded from network
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return count of bytes served from cache instead of network
+     */
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    /**
+     * Wait until content of opened streams is cached or discarded, so the rest of content
+     * read in background isn't lost on exit. Streams should be closed before waiting.
+     *
+     * @throws InterruptedException if current thread was interrupted while waiting
+     */
+    public void awaitDrains() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT;
+        synchronized (pending) {
+            long timeout;
+            while (!pending.isEmpty() && (timeout = deadline - System.currentTimeMillis()) > 0) {
+                pending.wait(timeout);
+            }
+        }
+    }
+
+    /**
+     * Delete temporary files left by interrupted downloads.
+     */
+    private void deleteStaleTemps() {
+        long staleTime = System.currentTimeMillis() - DRAIN_TIMEOUT;
+        File[] temps = directory.listFiles((dir, name) -> name.endsWith(TEMP_SUFFIX));
+        if (temps == null) return;
+        for (File temp : temps) {
+            if (temp.lastModified() < staleTime) {
+                temp.delete();
+            }
+        }
+    }
+
+    private Properties loadMeta(String key) {
+        File metaFile = new File(directory, key + META_SUFFIX);
+        if (!metaFile.isFile()) {
+            return null;
+        }
+        Properties meta = new Properties();
+        try (InputStream is = new FileInputStream(metaFile)) {
+            meta.load(is);
+            return meta;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Move downloaded content to cache and evict old entries.
+     */
+    private synchronized void commit(File temp, String key, Properties meta) throws IOException {
+        File data = new File(directory, key + DATA_SUFFIX);
+        Files.move(temp.toPath(), data.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        try (OutputStream os = new FileOutputStream(new File(directory, key + META_SUFFIX))) {
+            meta.store(os, null);
+        }
+        evict();
+    }
+
+    /**
+     * Delete the least recently used entries while total size exceeds maximal size.
+     */
+    private void evict() {
+        if (maxSize <= 0) return;
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(DATA_SUFFIX));
+        if (files == null) return;
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < files.length && total > maxSize; i++) {
+            total -= files[i].length();
+            String name = files[i].getName();
+            String key = name.substring(0, name.length() - DATA_SUFFIX.length());
+            new File(directory, key + META_SUFFIX).delete();
+            files[i].delete();
+        }
+    }
+
+    private static String getKey(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            StringBuilder key = new StringBuilder();
+            for (byte b : digest.digest(url.getBytes(StandardCharsets.UTF_8))) {
+                key.append(String.format("%02x", b));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Stream copying read content to temporary file, which is moved to cache on end of stream.
+     */
+    private class CachingInputStream extends FilterInputStream {
+        private final String key;
+        private final Properties meta;
+        private final File temp;
+        private OutputStream output;
+        private long length;
+        private boolean closed;
+
+        private CachingInputStream(InputStream in, String key, Properties meta) throws IOException {
+            super(in);
+            this.key = key;
+            this.meta = meta;
+            temp = File.createTempFile(key, TEMP_SUFFIX, directory);
+            output = new BufferedOutputStream(new FileOutputStream(temp));
+            synchronized (pending) {
+                pending.add(this);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                write(b);
+            } else {
+                complete();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = in.read(b, off, len);
+            if (count > 0) {
+                write(b, off, count);
+            } else if (count < 0) {
+                complete();
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] buffer = new byte[(int) Math.min(n, 8192)];
+            int count = read(buffer, 0, buffer.length);
+            return Math.max(count, 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        /**
+         * Close stream, the rest of not completed content is read into cache by background thread.
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            if (output == null) {
+                finish();
+                in.close();
+                return;
+            }
+            Thread drain = new Thread(this::drain, DRAIN_THREAD_NAME);
+            drain.setDaemon(true);
+            drain.start();
+        }
+
+        /**
+         * Read the rest of content into cache within size and time limits.
+         */
+        private void drain() {
+            long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT;
+            byte[] buffer = new byte[8192];
+            try {
+                while (output != null && read(buffer, 0, buffer.length) >= 0) {
+                    if ((maxSize > 0 && length > maxSize) || System.currentTimeMillis() > deadline) {
+                        logger.fine(MSG_DRAIN_ABORTED + meta.getProperty(URL_PROPERTY));
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                logger.warning(ERROR_CACHE_WRITE + e.getMessage());
+            } finally {
+                abort();
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        private void write(int b) {
+            if (output == null) return;
+            try {
+                length++;
+                output.write(b);
+            } catch (IOException e) {
+                logger.warning(ERROR_CACHE_WRITE + e.getMessage());
+                abort();
+            }
+        }
+
+        private void write(byte[] b, int off, int len) {
+            if (output == null) return;
+            try {
+                length += len;
+                output.write(b, off, len);
+            } catch (IOException e) {
+                logger.warning(ERROR_CACHE_WRITE + e.getMessage());
+                abort();
+            }
+        }
+
+        private void complete() {
+            if (output == null) return;
+            try {
+                output.close();
+                output = null;
+                commit(temp, key, meta);
+            } catch (IOException e) {
+                logger.warning(ERROR_CACHE_WRITE + e.getMessage());
+                abort();
+            }
+            finish();
+        }
+
+        private void abort() {
+            if (output != null) {
+                try {
+                    output.close();
+                } catch (IOException ignored) {
+                }
+                output = null;
+            }
+            temp.delete();
+            finish();
+        }
+
+        /**
+         * Remove stream from pending streams, its content is cached or discarded.
+         */
+        private void finish() {
+            synchronized (pending) {
+                if (pending.remove(this)) {
+                    pending.notifyAll();
+                }
+            }
+        }
+    }
+}
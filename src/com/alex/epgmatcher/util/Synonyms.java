@@ -4,20 +4,39 @@ import java.util.*;
 
 /**
  * Class provide synonyms.
+ * Lookup table from every synonym to its canonical form is built once on construction,
+ * so instances are immutable and may be shared between matching threads.
  * Created by Alex on 25.04.2017.
  */
 public class Synonyms {
     private static final String SYNONYMS_XML = "synonyms.xml";
-    private final HashSet<TreeSet<String>> synonymsSet;
     private final Map<String, String> synonymMap;
 
     /**
      * Constructs new instance of Synonyms
      */
     public Synonyms() {
-        synonymMap = new HashMap<>();
-        synonymsSet = DataHandler.load(SynonymsPreset.getSynonymSet(), SYNONYMS_XML);
+        HashSet<TreeSet<String>> synonymsSet = DataHandler.load(SynonymsPreset.getSynonymSet(), SYNONYMS_XML);
         synonymsSet.addAll(SynonymsPreset.getSynonymSet());
+        synonymMap = Collections.unmodifiableMap(createSynonymMap(synonymsSet));
+    }
+
+    /**
+     * Create map of every synonym to the first synonym of its set.
+     * Word included in several sets is mapped by the first of them.
+     * Lookup words are upper cased, so not upper cased synonyms are never found and skipped.
+     */
+    private static Map<String, String> createSynonymMap(Set<TreeSet<String>> synonymsSet) {
+        Map<String, String> map = new HashMap<>();
+        for (TreeSet<String> synonyms : synonymsSet) {
+            if (synonyms.isEmpty()) continue;
+            for (String synonym : synonyms) {
+                if (synonym.equals(synonym.toUpperCase()) && !map.containsKey(synonym)) {
+                    map.put(synonym, synonyms.first());
+                }
+            }
+        }
+        return map;
     }
 
     /**
@@ -27,16 +46,14 @@ public class Synonyms {
      */
     public String getSynonym(String word) {
         if (word == null) return null;
-        String upperCasedWord = word.toUpperCase();
-        String mapValue = synonymMap.get(upperCasedWord);
-        if (mapValue != null) return mapValue;
-        for (TreeSet<String> synonyms : synonymsSet) {
-            if (synonyms.contains(upperCasedWord)) {
-                synonymMap.put(upperCasedWord, synonyms.first());
-                return synonyms.first();
+        String mapValue = synonymMap.get(word);
+        if (mapValue == null) {
+            String upperCasedWord = word.toUpperCase();
+            if (!upperCasedWord.equals(word)) {
+                mapValue = synonymMap.get(upperCasedWord);
             }
         }
-        return word;
+        return mapValue != null ? mapValue : word;
     }
 
     /**
@@ -0,0 +1,156 @@
+package com.alex.epgmatcher.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dictionary of words interned to integer tokens.
+ * Every token refers to id of its synonym-canonical word, so words are compared
+ * by ids and precomputed lengths instead of synonym lookups.
+ * Dictionary is filled by {@link TokenDictionary#intern(String)} while {@link EPGIndex} is built
+ * and only read after that.
+ */
+public class TokenDictionary {
+    private static final int INITIAL_CAPACITY = 256;
+    private final Synonyms synonyms;
+    private final Map<String, Integer> tokenMap = new HashMap<>();
+    private final Map<String, Integer> canonicalMap = new HashMap<>();
+    private int[] tokenCanonicals = new int[INITIAL_CAPACITY];
+    private boolean[] tokenReplaced = new boolean[INITIAL_CAPACITY];
+    private int tokenCount;
+    private String[] canonicals = new String[INITIAL_CAPACITY];
+    private int[] canonicalLengths = new int[INITIAL_CAPACITY];
+    private int canonicalCount;
+
+    /**
+     * Constructs new empty {@link TokenDictionary}.
+     *
+     * @param synonyms synonyms used for words canonicalization
+     */
+    public TokenDictionary(Synonyms synonyms) {
+        this.synonyms = synonyms;
+    }
+
+    /**
+     * Add word to dictionary.
+     *
+     * @param word word to intern
+     * @return token of given word
+     */
+    public int intern(String word) {
+        Integer token = tokenMap.get(word);
+        if (token != null) {
+            return token;
+        }
+        String canonical = synonyms.getSynonym(word);
+        Integer canonicalId = canonicalMap.get(canonical);
+        if (canonicalId == null) {
+            if (canonicalCount == canonicals.length) {
+                canonicals = Arrays.copyOf(canonicals, canonicalCount * 2);
+                canonicalLengths = Arrays.copyOf(canonicalLengths, canonicalCount * 2);
+            }
+            canonicalId = canonicalCount++;
+            canonicals[canonicalId] = canonical;
+            canonicalLengths[canonicalId] = canonical.length();
+            canonicalMap.put(canonical, canonicalId);
+        }
+        if (tokenCount == tokenCanonicals.length) {
+            tokenCanonicals = Arrays.copyOf(tokenCanonicals, tokenCount * 2);
+            tokenReplaced = Arrays.copyOf(tokenReplaced, tokenCount * 2);
+        }
+        token = tokenCount++;
+        tokenCanonicals[token] = canonicalId;
+        tokenReplaced[token] = !canonical.equals(word);
+        tokenMap.put(word, token);
+        return token;
+    }
+
+    /**
+     * Intern all given words.
+     *
+     * @param words words to intern
+     * @return tokens of given words
+     */
+    public int[] intern(String[] words) {
+        int[] tokens = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            tokens[i] = intern(words[i]);
+        }
+        return tokens;
+    }
+
+    /**
+     * @param token token of word
+     * @return id of synonym-canonical word of given token
+     */
+    public int getCanonical(int token) {
+        return tokenCanonicals[token];
+    }
+
+    /**
+     * @param token token of word
+     * @return true if word of given token was replaced by synonym
+     */
+    public boolean isReplaced(int token) {
+        return tokenReplaced[token];
+    }
+
+    /**
+     * @param canonical id of canonical word
+     * @return canonical word
+     */
+    public String getCanonicalWord(int canonical) {
+        return canonicals[canonical];
+    }
+
+    /**
+     * @param canonical id of canonical word
+     * @return length of canonical word
+     */
+    public int getCanonicalLength(int canonical) {
+        return canonicalLengths[canonical];
+    }
+
+    /**
+     * Prepare channel words for rating without modifying the dictionary.
+     *
+     * @param words channel name split by words
+     * @return canonical channel words
+     */
+    public Words getWords(String[] words) {
+        Words result = new Words(words.length);
+        for (int i = 0; i < words.length; i++) {
+            String canonical = synonyms.getSynonym(words[i]);
+            Integer canonicalId = canonicalMap.get(canonical);
+            result.canonicals[i] = canonical;
+            result.canonicalIds[i] = canonicalId != null ? canonicalId : -1;
+            result.replaced[i] = !canonical.equals(words[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Channel words resolved against {@link TokenDictionary}.
+     * Words missing in dictionary have canonical id -1.
+     */
+    public static class Words {
+        final String[] canonicals;
+        final int[] canonicalIds;
+        final boolean[] replaced;
+
+        private Words(int size) {
+            canonicals = new String[size];
+            canonicalIds = new int[size];
+            replaced = new boolean[size];
+        }
+
+        public int size() {
+            return canonicals.length;
+        }
+
+        public String getCanonical(int index) {
+            return canonicals[index];
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.alex.epgmatcher.util;
+
+import com.alex.epgmatcher.beans.EPG;
+import com.alex.epgmatcher.beans.FindResult;
+
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Bounded collector of best rated EPGs.
+ * Keeps indexes of {@link EPGIndex} entries in min-heap ordered like {@link FindResult},
+ * so the worst of kept results is on top and is replaced by better ones.
+ * {@link FindResult} objects are created only for final results.
+ */
+class TopResults {
+    private final EPGIndex index;
+    private final double[] rates;
+    private final int[] epgIndexes;
+    private int size;
+
+    /**
+     * Constructs new empty {@link TopResults}.
+     *
+     * @param index    index of EPGs
+     * @param capacity maximal count of kept results
+     */
+    TopResults(EPGIndex index, int capacity) {
+        this.index = index;
+        rates = new double[capacity];
+        epgIndexes = new int[capacity];
+    }
+
+    /**
+     * Add rated EPG if it is better than the worst kept result.
+     *
+     * @param rate     rate of EPG
+     * @param epgIndex index of EPG in {@link EPGIndex}
+     */
+    void add(double rate, int epgIndex) {
+        if (size < rates.length) {
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!isWorse(rate, epgIndex, rates[parent], epgIndexes[parent])) break;
+                rates[i] = rates[parent];
+                epgIndexes[i] = epgIndexes[parent];
+                i = parent;
+            }
+            rates[i] = rate;
+            epgIndexes[i] = epgIndex;
+        } else if (size > 0 && isWorse(rates[0], epgIndexes[0], rate, epgIndex)) {
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && isWorse(rates[child + 1], epgIndexes[child + 1], rates[child], epgIndexes[child])) {
+                    child++;
+                }
+                if (!isWorse(rates[child], epgIndexes[child], rate, epgIndex)) break;
+                rates[i] = rates[child];
+                epgIndexes[i] = epgIndexes[child];
+                i = child;
+            }
+            rates[i] = rate;
+            epgIndexes[i] = epgIndex;
+        }
+    }
+
+    /**
+     * @return true if count of kept results reached capacity
+     */
+    boolean isFull() {
+        return size == rates.length;
+    }
+
+    /**
+     * @return rate of the worst kept result
+     */
+    double getMinRate() {
+        return rates[0];
+    }
+
+    /**
+     * Create {@link FindResult} for each kept result.
+     *
+     * @param searchWords words used for searching
+     * @return sorted results
+     */
+    SortedSet<FindResult> getResults(String[] searchWords) {
+        SortedSet<FindResult> results = new TreeSet<>();
+        for (int i = 0; i < size; i++) {
+            FindResult result = new FindResult(index.getEpg(epgIndexes[i]), rates[i]);
+            result.setSearchWords(searchWords);
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Compare results in order of {@link FindResult#compareTo(FindResult)}.
+     *
+     * @return true if first result would be placed after second one
+     */
+    private boolean isWorse(double rate, int epgIndex, double otherRate, int otherEpgIndex) {
+        if (rate != otherRate) {
+            return rate < otherRate;
+        }
+        EPG epg = index.getEpg(epgIndex);
+        return epg.compareTo(index.getEpg(otherEpgIndex)) > 0;
+    }
+}
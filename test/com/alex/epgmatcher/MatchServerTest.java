@@ -0,0 +1,117 @@
+package com.alex.epgmatcher;
+
+import com.alex.epgmatcher.beans.EPGSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+
+public class MatchServerTest {
+    private static final String EPG = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<tv>\n" +
+            "<channel id=\"first\"><display-name>Первый канал</display-name></channel>\n" +
+            "<channel id=\"ntv\"><display-name>НТВ</display-name></channel>\n" +
+            "<channel id=\"sport\"><display-name>Sport One</display-name></channel>\n" +
+            "</tv>\n";
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    private MatchServer server;
+
+    @Before
+    public void startServer() throws Exception {
+        File epg = new File(folder.getRoot(), "epg.xml");
+        Files.write(epg.toPath(), EPG.getBytes(StandardCharsets.UTF_8));
+        EPGSource source = new EPGSource(epg.toURI().toString(), EPGSource.DEFAULT_PRIORITY);
+        server = new MatchServer(Collections.singletonList(source), false, new HashMap<>(), 0, 2, 0);
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    public void serverListensOnFreePort() {
+        assertTrue(server.getPort() > 0);
+    }
+
+    @Test
+    public void matchReturnsTypeAndFoundEpgs() throws IOException {
+        String response = request("GET", "/match?name=" + URLEncoder.encode("Первый канал", "UTF-8"), null);
+        String[] lines = response.split("\n");
+        assertEquals("FULL", lines[0]);
+        assertEquals("1.0\tfirst\tПервый канал", lines[1]);
+    }
+
+    @Test
+    public void matchByTvgId() throws IOException {
+        String response = request("GET", "/match?name=Other&tvg-id=ntv", null);
+        assertTrue(response, response.contains("\tntv\tНТВ\n"));
+    }
+
+    @Test
+    public void matchWithoutNameIsRejected() throws IOException {
+        assertEquals(400, connect("GET", "/match", null).getResponseCode());
+    }
+
+    @Test
+    public void m3uReturnsMatchedPlaylist() throws IOException {
+        String playlist = "#EXTM3U\n#EXTINF:-1,Первый канал HD\nhttp://a/1\n" +
+                "#EXTINF:-1 tvg-id=\"ntv\",Other\nhttp://a/2\n#EXTINF:-1,Unknown\nhttp://a/3\n";
+        String response = request("POST", "/m3u", playlist);
+        assertEquals("#EXTM3U\r\n" +
+                "#EXTINF:-1 tvg-name=\"Первый канал\",Первый канал HD\r\nhttp://a/1\r\n" +
+                "#EXTINF:-1 tvg-id=\"ntv\" tvg-name=\"НТВ\",Other\r\nhttp://a/2\r\n" +
+                "#EXTINF:-1,Unknown\r\nhttp://a/3\r\n", response);
+    }
+
+    @Test
+    public void m3uRequiresPost() throws IOException {
+        assertEquals(405, connect("GET", "/m3u", null).getResponseCode());
+    }
+
+    private String request(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = connect(method, path, body);
+        assertEquals(200, connection.getResponseCode());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream is = connection.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = is.read(buffer)) >= 0) {
+                output.write(buffer, 0, count);
+            }
+        }
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private HttpURLConnection connect(String method, String path, String body) throws IOException {
+        URL url = new URL("http", "localhost", server.getPort(), path);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream os = connection.getOutputStream()) {
+                os.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return connection;
+    }
+}
@@ -0,0 +1,71 @@
+package com.alex.epgmatcher.util;
+
+import com.alex.epgmatcher.beans.Channel;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class DataHandlerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void saveM3UKeepsPermissionsOfExistingFile() throws IOException {
+        File file = folder.newFile("playlist.m3u");
+        assumePosix(file.toPath());
+        Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r-----");
+        Files.setPosixFilePermissions(file.toPath(), permissions);
+
+        assertTrue(DataHandler.saveM3U(createChannels("First"), file));
+        assertEquals(permissions, Files.getPosixFilePermissions(file.toPath()));
+    }
+
+    @Test
+    public void saveM3UCreatesFileWithDefaultPermissions() throws IOException {
+        Path reference = folder.newFile("reference").toPath();
+        assumePosix(reference);
+        File file = new File(folder.getRoot(), "playlist.m3u");
+
+        assertTrue(DataHandler.saveM3U(createChannels("First"), file));
+        assertEquals(Files.getPosixFilePermissions(reference), Files.getPosixFilePermissions(file.toPath()));
+    }
+
+    @Test
+    public void saveM3UWritesShortFileNameWithoutTemporaryFiles() throws IOException {
+        File file = new File(folder.getRoot(), "tv");
+
+        assertTrue(DataHandler.saveM3U(createChannels("First"), file));
+        assertFalse(DataHandler.saveM3U(createChannels("First"), file));
+        assertTrue(DataHandler.saveM3U(createChannels("Second"), file));
+        String[] files = folder.getRoot().list();
+        assertNotNull(files);
+        assertEquals(1, files.length);
+    }
+
+    private static void assumePosix(Path path) {
+        assumeTrue(Files.getFileAttributeView(path, PosixFileAttributeView.class) != null);
+    }
+
+    private static List<Channel> createChannels(String name) {
+        Channel channel = new Channel();
+        channel.setId("-1");
+        channel.setName(name);
+        channel.setUrl("http://localhost/" + name);
+        return Collections.singletonList(channel);
+    }
+}
@@ -0,0 +1,58 @@
+package com.alex.epgmatcher.util;
+
+import com.alex.epgmatcher.beans.EPG;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EPGMergerTest {
+
+    @Test
+    public void channelOfDroppedDuplicateIsKept() {
+        EPGMerger merger = new EPGMerger(new int[]{2, 1, 3});
+        merger.add(1, Collections.singletonList(createEpg("1", "Y")));
+        merger.add(0, Collections.singletonList(createEpg("1", "X")));
+        merger.add(2, Collections.singletonList(createEpg("c", "X")));
+
+        List<EPG> epgs = merger.getEpgs();
+        assertEquals(2, epgs.size());
+        assertEquals("1", epgs.get(0).getId());
+        assertEquals("Y", epgs.get(0).getName());
+        assertEquals("c", epgs.get(1).getId());
+        assertEquals("X", epgs.get(1).getName());
+    }
+
+    @Test
+    public void namesOfOneChannelInSameSourceAreKept() {
+        EPGMerger merger = new EPGMerger(new int[]{0, 0});
+        merger.add(0, Arrays.asList(createEpg("1", "X"), createEpg("1", "X HD")));
+        merger.add(1, Arrays.asList(createEpg("1", "X SD"), createEpg("2", "X HD")));
+
+        List<EPG> epgs = merger.getEpgs();
+        assertEquals(2, epgs.size());
+        assertEquals("X", epgs.get(0).getName());
+        assertEquals("X HD", epgs.get(1).getName());
+    }
+
+    @Test
+    public void earlierSourceWinsOnEqualPriority() {
+        EPGMerger merger = new EPGMerger(new int[]{0, 0});
+        merger.add(1, Collections.singletonList(createEpg("2", "X")));
+        merger.add(0, Collections.singletonList(createEpg("1", "X")));
+
+        List<EPG> epgs = merger.getEpgs();
+        assertEquals(1, epgs.size());
+        assertEquals("1", epgs.get(0).getId());
+    }
+
+    private static EPG createEpg(String id, String name) {
+        EPG epg = new EPG();
+        epg.setId(id);
+        epg.setName(name);
+        return epg;
+    }
+}
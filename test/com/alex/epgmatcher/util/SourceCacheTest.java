@@ -0,0 +1,152 @@
+package com.alex.epgmatcher.util;
+
+import com.alex.epgmatcher.beans.InputStreamReaderData;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SourceCacheTest {
+    private static final String ETAG = "\"v1\"";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Map<String, byte[]> contents = new HashMap<>();
+    private HttpServer server;
+    private int notModified;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        contents.put("/small", createContent(1000, 'a'));
+        contents.put("/other", createContent(1000, 'b'));
+        contents.put("/large", createContent(2 * 1024 * 1024, 'c'));
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void notModifiedContentIsServedFromCache() throws Exception {
+        SourceCache cache = new SourceCache(folder.getRoot(), 0);
+
+        assertArrayEquals(contents.get("/small"), readAll(cache, "/small"));
+        assertEquals(1, cache.getMisses());
+        assertEquals(0, notModified);
+
+        assertArrayEquals(contents.get("/small"), readAll(cache, "/small"));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, notModified);
+        assertEquals(1000, cache.getBytesSaved());
+    }
+
+    @Test
+    public void partiallyReadContentIsCachedInBackground() throws Exception {
+        SourceCache cache = new SourceCache(folder.getRoot(), 0);
+
+        try (InputStream is = open(cache, "/large").getInputStream()) {
+            assertEquals(100, is.read(new byte[100]));
+        }
+        cache.awaitDrains();
+
+        assertArrayEquals(contents.get("/large"), readAll(cache, "/large"));
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void contentLargerThanCacheIsNotCached() throws Exception {
+        SourceCache cache = new SourceCache(folder.getRoot(), 1024 * 1024);
+
+        try (InputStream is = open(cache, "/large").getInputStream()) {
+            assertEquals(100, is.read(new byte[100]));
+        }
+        cache.awaitDrains();
+
+        assertArrayEquals(contents.get("/large"), readAll(cache, "/large"));
+        assertEquals(0, cache.getHits());
+        String[] files = folder.getRoot().list();
+        assertNotNull(files);
+        assertEquals(0, files.length);
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvicted() throws Exception {
+        SourceCache cache = new SourceCache(folder.getRoot(), 1500);
+
+        readAll(cache, "/small");
+        File[] cached = folder.getRoot().listFiles();
+        assertNotNull(cached);
+        for (File file : cached) {
+            assertTrue(file.setLastModified(System.currentTimeMillis() - 60000));
+        }
+        readAll(cache, "/other");
+
+        readAll(cache, "/other");
+        assertEquals(1, cache.getHits());
+        readAll(cache, "/small");
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        byte[] content = contents.get(exchange.getRequestURI().getPath());
+        exchange.getResponseHeaders().set("ETag", ETAG);
+        if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            notModified++;
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        exchange.sendResponseHeaders(200, content.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(content);
+        } catch (IOException ignored) {
+            // client closed connection before the end
+        }
+    }
+
+    private InputStreamReaderData open(SourceCache cache, String path) throws IOException {
+        URL url = new URL("http", "localhost", server.getAddress().getPort(), path);
+        return cache.open(url.openConnection());
+    }
+
+    private byte[] readAll(SourceCache cache, String path) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream is = open(cache, path).getInputStream()) {
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = is.read(buffer)) >= 0) {
+                output.write(buffer, 0, count);
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private static byte[] createContent(int length, char c) {
+        byte[] content = new byte[length];
+        Arrays.fill(content, (byte) c);
+        return content;
+    }
+}